@@ -0,0 +1,96 @@
+package com.refactoring.before_v1;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Projects what open rentals will cost if they are returned in each of the
+ * next {@link #HORIZON} days.
+ *
+ * For an open rental, {@link Rental#getDaysRented()} is the number of days it
+ * has been out so far. Entry n of its curve is the charge if it comes back n
+ * days from now, priced with the same rules as {@link Customer#statement()}.
+ * A curve depends only on the price code and the days so far, so curves are
+ * computed once per pair and shared.
+ */
+class ChargeProjection
+{
+    public static final int HORIZON = 30;
+
+    private final ConcurrentMap<Long, double[]> _curves = new ConcurrentHashMap<Long, double[]>();
+
+    public double[] curveFor(Rental rental)
+    {
+        return curve(rental.getMovie().getPriceCode(), rental.getDaysRented()).clone();
+    }
+
+    /**
+     * @throws IllegalArgumentException if daysFromNow is outside 0 to
+     *             {@link #HORIZON}
+     */
+    public double chargeAt(Rental rental, int daysFromNow)
+    {
+        if (daysFromNow < 0 || daysFromNow > HORIZON)
+        {
+            throw new IllegalArgumentException("Days from now " + daysFromNow + " is outside 0.." + HORIZON);
+        }
+        return curve(rental.getMovie().getPriceCode(), rental.getDaysRented())[daysFromNow];
+    }
+
+    /**
+     * Returns the projected charge of all the rentals together, for each day
+     * from now up to the horizon.
+     */
+    public double[] totalsFor(Collection<Rental> openRentals)
+    {
+        final Map<Long, int[]> counts = new HashMap<Long, int[]>();
+        for (Rental each : openRentals)
+        {
+            final long key = key(each.getMovie().getPriceCode(), each.getDaysRented());
+            int[] count = counts.get(key);
+            if (count == null)
+            {
+                count = new int[1];
+                counts.put(key, count);
+            }
+            count[0]++;
+        }
+
+        final double[] result = new double[HORIZON + 1];
+        for (Map.Entry<Long, int[]> entry : counts.entrySet())
+        {
+            final double[] curve = _curves.computeIfAbsent(entry.getKey(), ChargeProjection::computeCurve);
+            final int count = entry.getValue()[0];
+            for (int n = 0; n <= HORIZON; n++)
+            {
+                result[n] += count * curve[n];
+            }
+        }
+        return result;
+    }
+
+    private double[] curve(int priceCode, int daysRented)
+    {
+        return _curves.computeIfAbsent(key(priceCode, daysRented), ChargeProjection::computeCurve);
+    }
+
+    private static double[] computeCurve(long key)
+    {
+        final int priceCode = (int) (key >>> 32);
+        final int daysRented = (int) key;
+        final double[] result = new double[HORIZON + 1];
+        for (int n = 0; n <= HORIZON; n++)
+        {
+            result[n] = Movie.chargeFor(priceCode, daysRented + n);
+        }
+        return result;
+    }
+
+    private static long key(int priceCode, int daysRented)
+    {
+        return ((long) priceCode << 32) | (daysRented & 0xFFFFFFFFL);
+    }
+}
@@ -1,10 +1,16 @@
 package com.refactoring.before_v1;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.Vector;
 
 class Customer
 {
+    private static final int DEFAULT_STATEMENT_WINDOW = 1024;
+
     private final String _name;
     private final Vector _rentals = new Vector();
 
@@ -23,48 +29,26 @@ class Customer
         return _name;
     }
 
+    Enumeration<?> getRentals()
+    {
+        return _rentals.elements();
+    }
+
     public String statement()
     {
         double totalAmount = 0;
         int frequentRenterPoints = 0;
-        final Enumeration rentals = _rentals.elements();
+        final Enumeration<?> rentals = _rentals.elements();
         String result = "Rental Record for " + getName() + "\n";
         while (rentals.hasMoreElements())
         {
-            double thisAmount = 0;
             final Rental each = (Rental) rentals.nextElement();
 
             //determine amounts for each line
-            switch (each.getMovie().getPriceCode())
-            {
-                case Movie.REGULAR:
-                    thisAmount += 2;
-                    if (each.getDaysRented() > 2)
-                    {
-                        thisAmount += (each.getDaysRented() - 2) * 1.5;
-                    }
-                    break;
-                case Movie.NEW_RELEASE:
-                    thisAmount += each.getDaysRented() * 3;
-                    break;
-                case Movie.CHILDRENS:
-                    thisAmount += 1.5;
-                    if (each.getDaysRented() > 3)
-                    {
-                        thisAmount += (each.getDaysRented() - 3) * 1.5;
-                    }
-                    break;
-            }
+            final double thisAmount = each.getMovie().getCharge(each.getDaysRented());
 
             // add frequent renter points
-            frequentRenterPoints++;
-            // add bonus for a two day new release rental
-            if (each.getMovie().getPriceCode() == Movie.NEW_RELEASE
-                    &&
-                    each.getDaysRented() > 1)
-            {
-                frequentRenterPoints++;
-            }
+            frequentRenterPoints += each.getMovie().getFrequentRenterPoints(each.getDaysRented());
 
             //show figures for this rental
             result += "\t"
@@ -84,4 +68,66 @@ class Customer
                 " frequent renter points";
         return result;
     }
+
+    /**
+     * Writes the same text as {@link #statement()} as UTF-8, copying each title
+     * straight from its movie instead of concatenating it into a String.
+     */
+    public void statement(OutputStream out) throws IOException
+    {
+        statement(out, DEFAULT_STATEMENT_WINDOW);
+    }
+
+    /**
+     * Writes the statement a window of rentals at a time: the lines for each
+     * window are buffered, written to the stream and flushed before the next
+     * window is rendered. Only the running totals and one window of output are
+     * held, however many rentals the customer has.
+     */
+    public void statement(OutputStream out, int windowSize) throws IOException
+    {
+        if (windowSize < 1)
+        {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        double totalAmount = 0;
+        int frequentRenterPoints = 0;
+        final ByteArrayOutputStream window = new ByteArrayOutputStream();
+        write(window, "Rental Record for " + getName() + "\n");
+        for (int i = 0; i < _rentals.size(); i++)
+        {
+            final Rental each = (Rental) _rentals.elementAt(i);
+            final double thisAmount = each.getMovie().getCharge(each.getDaysRented());
+            frequentRenterPoints += each.getMovie().getFrequentRenterPoints(each.getDaysRented());
+
+            window.write('\t');
+            each.getMovie().writeTitle(window);
+            window.write('\t');
+            write(window, String.valueOf(thisAmount));
+            window.write('\n');
+            totalAmount += thisAmount;
+
+            if ((i + 1) % windowSize == 0)
+            {
+                flush(window, out);
+            }
+        }
+        write(window, "Amount owed is " + String.valueOf(totalAmount) + "\n");
+        write(window, "You earned "
+                + String.valueOf(frequentRenterPoints)
+                + " frequent renter points");
+        flush(window, out);
+    }
+
+    private static void flush(ByteArrayOutputStream window, OutputStream out) throws IOException
+    {
+        window.writeTo(out);
+        out.flush();
+        window.reset();
+    }
+
+    private static void write(OutputStream out, String text) throws IOException
+    {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
 }
@@ -1,5 +1,9 @@
 package com.refactoring.before_v1;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
 public class Movie
 {
 
@@ -8,11 +12,27 @@ public class Movie
     public static final int NEW_RELEASE = 1;
 
     private final String _title;
+    private final TitleArena _titles;
+    private final long _titleHandle;
     private int _priceCode;
 
     public Movie(String title, int priceCode)
     {
         _title = title;
+        _titles = null;
+        _titleHandle = -1;
+        _priceCode = priceCode;
+    }
+
+    /**
+     * Creates a movie whose title is kept in the given arena rather than in a
+     * String of its own.
+     */
+    public Movie(TitleArena titles, String title, int priceCode)
+    {
+        _title = null;
+        _titles = titles;
+        _titleHandle = titles.add(title);
         _priceCode = priceCode;
     }
 
@@ -28,6 +48,59 @@ public class Movie
 
     public String getTitle()
     {
-        return _title;
+        return _titles == null ? _title : _titles.getString(_titleHandle);
     };
+
+    /**
+     * Writes the title as UTF-8; compact titles are copied from the arena
+     * without building a String.
+     */
+    public void writeTitle(OutputStream out) throws IOException
+    {
+        if (_titles == null)
+        {
+            out.write(_title.getBytes(StandardCharsets.UTF_8));
+        }
+        else
+        {
+            _titles.writeTo(_titleHandle, out);
+        }
+    }
+
+    public double getCharge(int daysRented)
+    {
+        return chargeFor(_priceCode, daysRented);
+    }
+
+    public int getFrequentRenterPoints(int daysRented)
+    {
+        // bonus for a two day new release rental
+        return _priceCode == NEW_RELEASE && daysRented > 1 ? 2 : 1;
+    }
+
+    static double chargeFor(int priceCode, int daysRented)
+    {
+        double result = 0;
+        switch (priceCode)
+        {
+            case REGULAR:
+                result += 2;
+                if (daysRented > 2)
+                {
+                    result += (daysRented - 2) * 1.5;
+                }
+                break;
+            case NEW_RELEASE:
+                result += daysRented * 3;
+                break;
+            case CHILDRENS:
+                result += 1.5;
+                if (daysRented > 3)
+                {
+                    result += (daysRented - 3) * 1.5;
+                }
+                break;
+        }
+        return result;
+    }
 }
@@ -0,0 +1,202 @@
+package com.refactoring.before_v1;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds rentals as packed records in direct (off-heap) memory, so large rental
+ * bases do not add millions of Rental objects to the heap the collector has to
+ * trace.
+ *
+ * Each record is two ints: the index of the movie in the store's movie table
+ * and the days rented. Records are kept in fixed-size segments so the store
+ * can grow past the 2GB limit of a single buffer. The store is written by one
+ * thread; once filled it can be read from many.
+ *
+ * Closing the store drops its segments and makes any further access fail, but
+ * the memory itself is only returned when the collector finds the buffers
+ * unreachable, as with any direct buffer; the JVM gives no safe way to free
+ * one on demand while other threads may still be reading it. Capping direct
+ * memory with -XX:MaxDirectMemorySize makes the JVM collect sooner when
+ * stores are closed and opened often.
+ */
+public class OffHeapRentalStore implements AutoCloseable
+{
+    private static final int RECORD_SIZE = 8;
+    private static final int MOVIE_OFFSET = 0;
+    private static final int DAYS_OFFSET = 4;
+    private static final int RECORDS_PER_SEGMENT = 1 << 20;
+
+    private final List<Movie> _movies = new ArrayList<Movie>();
+    private final Map<Movie, Integer> _movieIndexes = new HashMap<Movie, Integer>();
+    private ByteBuffer[] _segments = new ByteBuffer[0];
+    private long _size;
+    private boolean _closed;
+
+    public long size()
+    {
+        return _size;
+    }
+
+    public long add(Movie movie, int daysRented)
+    {
+        checkOpen();
+        final int segment = (int) (_size / RECORDS_PER_SEGMENT);
+        if (segment == _segments.length)
+        {
+            final ByteBuffer[] grown = new ByteBuffer[segment + 1];
+            System.arraycopy(_segments, 0, grown, 0, segment);
+            grown[segment] = ByteBuffer.allocateDirect(RECORDS_PER_SEGMENT * RECORD_SIZE)
+                    .order(ByteOrder.nativeOrder());
+            _segments = grown;
+        }
+        final int offset = (int) (_size % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+        _segments[segment].putInt(offset + MOVIE_OFFSET, indexOf(movie));
+        _segments[segment].putInt(offset + DAYS_OFFSET, daysRented);
+        return _size++;
+    }
+
+    /**
+     * Copies all of the customer's rentals into the store and returns a view
+     * over them.
+     */
+    public Rentals addAll(Customer customer)
+    {
+        final long start = _size;
+        final Enumeration<?> rentals = customer.getRentals();
+        while (rentals.hasMoreElements())
+        {
+            final Rental each = (Rental) rentals.nextElement();
+            add(each.getMovie(), each.getDaysRented());
+        }
+        return new Rentals(start, _size);
+    }
+
+    public Movie getMovie(long index)
+    {
+        return _movies.get(intAt(index, MOVIE_OFFSET));
+    }
+
+    public int getDaysRented(long index)
+    {
+        return intAt(index, DAYS_OFFSET);
+    }
+
+    @Override
+    public void close()
+    {
+        // the memory goes back when the collector next finds the buffers
+        // unreachable, not here
+        _segments = new ByteBuffer[0];
+        _size = 0;
+        _closed = true;
+    }
+
+    private int intAt(long index, int field)
+    {
+        checkOpen();
+        if (index < 0 || index >= _size)
+        {
+            throw new IndexOutOfBoundsException("Rental " + index + " of " + _size);
+        }
+        final int offset = (int) (index % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+        return _segments[(int) (index / RECORDS_PER_SEGMENT)].getInt(offset + field);
+    }
+
+    private int indexOf(Movie movie)
+    {
+        Integer result = _movieIndexes.get(movie);
+        if (result == null)
+        {
+            result = _movies.size();
+            _movies.add(movie);
+            _movieIndexes.put(movie, result);
+        }
+        return result;
+    }
+
+    private void checkOpen()
+    {
+        if (_closed)
+        {
+            throw new IllegalStateException("Rental store is closed");
+        }
+    }
+
+    /**
+     * A contiguous run of rentals in the store, typically those of one
+     * customer. Walking it with a {@link Cursor} does not allocate.
+     */
+    public class Rentals
+    {
+        private final long _start;
+        private final long _end;
+
+        private Rentals(long start, long end)
+        {
+            _start = start;
+            _end = end;
+        }
+
+        public long size()
+        {
+            return _end - _start;
+        }
+
+        public Cursor cursor()
+        {
+            return new Cursor(_start, _end);
+        }
+
+        public double getTotalCharge()
+        {
+            double result = 0;
+            for (long i = _start; i < _end; i++)
+            {
+                result += Movie.chargeFor(getMovie(i).getPriceCode(), getDaysRented(i));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Moves over a run of rentals one record at a time; call {@link #next()}
+     * before reading the first record.
+     */
+    public class Cursor
+    {
+        private final long _end;
+        private long _index;
+
+        private Cursor(long start, long end)
+        {
+            _index = start - 1;
+            _end = end;
+        }
+
+        public boolean next()
+        {
+            return ++_index < _end;
+        }
+
+        public Movie getMovie()
+        {
+            return OffHeapRentalStore.this.getMovie(_index);
+        }
+
+        public int getDaysRented()
+        {
+            return OffHeapRentalStore.this.getDaysRented(_index);
+        }
+
+        public double getCharge()
+        {
+            return getMovie().getCharge(getDaysRented());
+        }
+    }
+}
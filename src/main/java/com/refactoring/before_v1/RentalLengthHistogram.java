@@ -0,0 +1,127 @@
+package com.refactoring.before_v1;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts of rentals per title, bucketed by days rented.
+ *
+ * The charge for a rental depends only on the price code and the number of
+ * days, so the revenue of a title under any price code can be worked out from
+ * these counts without walking the rentals again.
+ */
+class RentalLengthHistogram
+{
+    private final Map<Movie, int[]> _counts;
+
+    private RentalLengthHistogram(Map<Movie, int[]> counts)
+    {
+        _counts = counts;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a rental has a negative number of
+     *             days, which no bucket can hold
+     */
+    static RentalLengthHistogram of(Collection<Customer> customers)
+    {
+        // a mutable reduction: each worker counts into its own map, and maps
+        // are merged into one another rather than copied per customer
+        final Map<Movie, int[]> counts = customers.parallelStream()
+                .collect(HashMap::new, RentalLengthHistogram::countRentals, RentalLengthHistogram::merge);
+        return new RentalLengthHistogram(counts);
+    }
+
+    Set<Movie> getMovies()
+    {
+        return Collections.unmodifiableSet(_counts.keySet());
+    }
+
+    /**
+     * Returns the number of rentals of the movie for each length in days; the
+     * array is indexed by days rented.
+     */
+    int[] countsFor(Movie movie)
+    {
+        final int[] result = _counts.get(movie);
+        return result == null ? new int[0] : result.clone();
+    }
+
+    double revenueFor(Movie movie, int priceCode)
+    {
+        final int[] counts = _counts.get(movie);
+        if (counts == null)
+        {
+            return 0;
+        }
+        double result = 0;
+        for (int days = 0; days < counts.length; days++)
+        {
+            if (counts[days] != 0)
+            {
+                result += counts[days] * Movie.chargeFor(priceCode, days);
+            }
+        }
+        return result;
+    }
+
+    private static void countRentals(Map<Movie, int[]> result, Customer customer)
+    {
+        final Enumeration<?> rentals = customer.getRentals();
+        while (rentals.hasMoreElements())
+        {
+            final Rental each = (Rental) rentals.nextElement();
+            final int days = each.getDaysRented();
+            if (days < 0)
+            {
+                throw new IllegalArgumentException("Rental of " + each.getMovie().getTitle() + " by "
+                        + customer.getName() + " has negative days rented: " + days);
+            }
+            int[] counts = result.get(each.getMovie());
+            if (counts == null || counts.length <= days)
+            {
+                counts = grow(counts, days + 1);
+                result.put(each.getMovie(), counts);
+            }
+            counts[days]++;
+        }
+    }
+
+    /**
+     * Adds the counts of right into left.
+     */
+    private static void merge(Map<Movie, int[]> left, Map<Movie, int[]> right)
+    {
+        for (Map.Entry<Movie, int[]> entry : right.entrySet())
+        {
+            final int[] addition = entry.getValue();
+            final int[] existing = left.get(entry.getKey());
+            if (existing == null)
+            {
+                left.put(entry.getKey(), addition);
+                continue;
+            }
+            final int[] counts = existing.length >= addition.length ? existing : grow(existing, addition.length);
+            for (int days = 0; days < addition.length; days++)
+            {
+                counts[days] += addition[days];
+            }
+            left.put(entry.getKey(), counts);
+        }
+    }
+
+    private static int[] grow(int[] counts, int length)
+    {
+        if (counts == null)
+        {
+            return new int[length];
+        }
+        final int[] result = new int[Math.max(counts.length, length)];
+        System.arraycopy(counts, 0, result, 0, counts.length);
+        return result;
+    }
+}
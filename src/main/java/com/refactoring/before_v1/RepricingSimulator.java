@@ -0,0 +1,104 @@
+package com.refactoring.before_v1;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Works out what changing the price code of some movies would do to revenue,
+ * without touching the movies themselves.
+ *
+ * Title deltas come from a {@link RentalLengthHistogram} built once for the
+ * rental base; customer deltas need a pass over the rentals, which is done in
+ * parallel and only looks at repriced titles.
+ */
+class RepricingSimulator
+{
+    private final Collection<Customer> _customers;
+    private final RentalLengthHistogram _histogram;
+
+    /**
+     * @throws IllegalArgumentException if a rental has a negative number of
+     *             days
+     */
+    public RepricingSimulator(Collection<Customer> customers)
+    {
+        _customers = customers;
+        _histogram = RentalLengthHistogram.of(customers);
+    }
+
+    /**
+     * Simulates the given price codes, keyed by movie. Movies that are not in
+     * the map keep their current price code.
+     */
+    public Result simulate(Map<Movie, Integer> priceCodes)
+    {
+        final Map<Movie, Double> titleDeltas = new HashMap<Movie, Double>();
+        for (Map.Entry<Movie, Integer> entry : priceCodes.entrySet())
+        {
+            final Movie movie = entry.getKey();
+            titleDeltas.put(movie,
+                    _histogram.revenueFor(movie, entry.getValue())
+                            - _histogram.revenueFor(movie, movie.getPriceCode()));
+        }
+
+        final ConcurrentMap<Customer, Double> customerDeltas = _customers.parallelStream()
+                .collect(Collectors.toConcurrentMap(Function.identity(),
+                        each -> deltaFor(each, priceCodes)));
+        return new Result(titleDeltas, customerDeltas);
+    }
+
+    private static double deltaFor(Customer customer, Map<Movie, Integer> priceCodes)
+    {
+        double result = 0;
+        final Enumeration<?> rentals = customer.getRentals();
+        while (rentals.hasMoreElements())
+        {
+            final Rental each = (Rental) rentals.nextElement();
+            final Integer priceCode = priceCodes.get(each.getMovie());
+            if (priceCode != null)
+            {
+                result += Movie.chargeFor(priceCode, each.getDaysRented())
+                        - each.getMovie().getCharge(each.getDaysRented());
+            }
+        }
+        return result;
+    }
+
+    public static class Result
+    {
+        private final Map<Movie, Double> _titleDeltas;
+        private final Map<Customer, Double> _customerDeltas;
+
+        private Result(Map<Movie, Double> titleDeltas, Map<Customer, Double> customerDeltas)
+        {
+            _titleDeltas = Collections.unmodifiableMap(titleDeltas);
+            _customerDeltas = Collections.unmodifiableMap(customerDeltas);
+        }
+
+        public Map<Movie, Double> getTitleDeltas()
+        {
+            return _titleDeltas;
+        }
+
+        public Map<Customer, Double> getCustomerDeltas()
+        {
+            return _customerDeltas;
+        }
+
+        public double getTotalDelta()
+        {
+            double result = 0;
+            for (double each : _titleDeltas.values())
+            {
+                result += each;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.refactoring.before_v1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps movie titles as UTF-8 bytes in one shared array instead of a String
+ * per movie.
+ *
+ * A title is referred to by a handle that packs its offset and length, and can
+ * be copied straight into an output stream or buffer without being decoded.
+ * Titles are only ever appended, so a handle stays valid for the life of the
+ * arena.
+ */
+public class TitleArena
+{
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private volatile byte[] _bytes = new byte[INITIAL_CAPACITY];
+    private volatile int _size;
+
+    public synchronized long add(String title)
+    {
+        final byte[] encoded = title.getBytes(StandardCharsets.UTF_8);
+        final int offset = _size;
+        if (offset + encoded.length > _bytes.length)
+        {
+            final byte[] grown = new byte[Math.max(_bytes.length * 2, offset + encoded.length)];
+            System.arraycopy(_bytes, 0, grown, 0, offset);
+            _bytes = grown;
+        }
+        System.arraycopy(encoded, 0, _bytes, offset, encoded.length);
+        // publishing the size makes the bytes written above visible to readers
+        _size = offset + encoded.length;
+        return handle(offset, encoded.length);
+    }
+
+    public String getString(long handle)
+    {
+        final byte[] bytes = bytesFor(handle);
+        return new String(bytes, offset(handle), length(handle), StandardCharsets.UTF_8);
+    }
+
+    public int getLength(long handle)
+    {
+        return length(handle);
+    }
+
+    public void writeTo(long handle, OutputStream out) throws IOException
+    {
+        out.write(bytesFor(handle), offset(handle), length(handle));
+    }
+
+    public void writeTo(long handle, ByteBuffer out)
+    {
+        out.put(bytesFor(handle), offset(handle), length(handle));
+    }
+
+    /**
+     * Returns the number of bytes used by all titles in the arena.
+     */
+    public int size()
+    {
+        return _size;
+    }
+
+    private byte[] bytesFor(long handle)
+    {
+        // read the size first so the array read after it holds the title
+        if (offset(handle) + length(handle) > _size)
+        {
+            throw new IllegalArgumentException("Unknown title handle " + handle);
+        }
+        return _bytes;
+    }
+
+    private static long handle(int offset, int length)
+    {
+        return ((long) offset << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    private static int offset(long handle)
+    {
+        return (int) (handle >>> 32);
+    }
+
+    private static int length(long handle)
+    {
+        return (int) handle;
+    }
+}
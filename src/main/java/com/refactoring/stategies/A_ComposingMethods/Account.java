@@ -0,0 +1,48 @@
+// Account.java - Account whose gamma delegates to a method object, with a batch form
+
+package com.refactoring.stategies.A_ComposingMethods;
+
+/**
+ * The account of {@link A5_Replace_Method_with_Method_Object}, whose gamma
+ * method delegates to the {@link Gamma} method object.
+ *
+ * Pricing loops that need gamma for many inputs should use the batch form,
+ * which runs the same calculation over primitive arrays without creating a
+ * Gamma per value.
+ */
+public class Account
+{
+    private final int _delta;
+
+    public Account(int delta)
+    {
+        _delta = delta;
+    }
+
+    int delta()
+    {
+        return _delta;
+    }
+
+    int gamma(int inputVal, int quantity, int yearToDate)
+    {
+        return new Gamma(this, inputVal, quantity, yearToDate).compute();
+    }
+
+    /**
+     * Computes gamma for each index of the input arrays into result, which
+     * must be at least as long as the inputs.
+     */
+    void gamma(int[] inputVals, int[] quantities, int[] yearToDates, int[] result)
+    {
+        if (quantities.length != inputVals.length || yearToDates.length != inputVals.length)
+        {
+            throw new IllegalArgumentException("Input arrays differ in length");
+        }
+        final int delta = delta();
+        for (int i = 0; i < inputVals.length; i++)
+        {
+            result[i] = Gamma.compute(delta, inputVals[i], quantities[i], yearToDates[i]);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+// CandidateMatcher.java - Finds the first candidate in a large list of people
+
+package com.refactoring.stategies.A_ComposingMethods;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * The substituted foundPerson of {@link A8_Substitute_Algorithm}, for large
+ * candidate lists.
+ *
+ * The candidates are put in a hash set once, so each person is checked in
+ * constant time instead of with List.contains. Large arrays of people are
+ * split into chunks searched in parallel; the answer is still the first
+ * matching person in array order, and chunks after the earliest match found
+ * so far are skipped.
+ */
+public class CandidateMatcher
+{
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private final Set<String> _candidates;
+
+    public CandidateMatcher(Collection<String> candidates)
+    {
+        _candidates = new HashSet<String>(candidates);
+    }
+
+    /**
+     * Returns the first person who is a candidate, or an empty string if none
+     * is.
+     */
+    public String foundPerson(String[] people)
+    {
+        final int index = people.length <= CHUNK_SIZE
+                ? firstMatch(people, 0, people.length)
+                : firstMatchInParallel(people);
+        return index < 0 ? "" : people[index];
+    }
+
+    private int firstMatchInParallel(String[] people)
+    {
+        final AtomicInteger first = new AtomicInteger(Integer.MAX_VALUE);
+        final int chunks = (people.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final int start = chunk * CHUNK_SIZE;
+            if (start > first.get())
+            {
+                return;
+            }
+            final int found = firstMatch(people, start, Math.min(start + CHUNK_SIZE, people.length));
+            if (found >= 0)
+            {
+                first.accumulateAndGet(found, Math::min);
+            }
+        });
+        return first.get() == Integer.MAX_VALUE ? -1 : first.get();
+    }
+
+    private int firstMatch(String[] people, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            if (_candidates.contains(people[i]))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
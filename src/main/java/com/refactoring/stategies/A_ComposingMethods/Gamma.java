@@ -0,0 +1,45 @@
+// Gamma.java - Method object for the gamma calculation of Account
+
+package com.refactoring.stategies.A_ComposingMethods;
+
+/**
+ * The method object extracted from Account.gamma in
+ * {@link A5_Replace_Method_with_Method_Object}.
+ *
+ * The calculation itself is a static method of the inputs, so the batch form
+ * of Account.gamma can run it without an instance. A Gamma that never leaves
+ * Account.gamma is a candidate for scalar replacement by the JIT, which would
+ * remove the single-call allocation as well.
+ */
+class Gamma
+{
+    private final Account _account;
+    private final int _inputVal;
+    private final int _quantity;
+    private final int _yearToDate;
+
+    Gamma(Account source, int inputValArg, int quantityArg, int yearToDateArg)
+    {
+        _account = source;
+        _inputVal = inputValArg;
+        _quantity = quantityArg;
+        _yearToDate = yearToDateArg;
+    }
+
+    int compute()
+    {
+        return compute(_account.delta(), _inputVal, _quantity, _yearToDate);
+    }
+
+    static int compute(int delta, int inputVal, int quantity, int yearToDate)
+    {
+        final int importantValue1 = (inputVal * quantity) + delta;
+        int importantValue2 = (inputVal * yearToDate) + 100;
+        if ((yearToDate - importantValue1) > 100)
+        {
+            importantValue2 -= 20;
+        }
+        final int importantValue3 = importantValue2 * 7;
+        return importantValue3 - 2 * importantValue1;
+    }
+}
@@ -0,0 +1,28 @@
+// Department.java - Department tracking its manager
+
+package com.refactoring.stategies.B_Moving_Features_Between_Objects;
+
+/**
+ * The department of {@link B5_Hide_Delegate}.
+ */
+public class Department
+{
+    private final String _chargeCode;
+    private final Person _manager;
+
+    public Department(String chargeCode, Person manager)
+    {
+        _chargeCode = chargeCode;
+        _manager = manager;
+    }
+
+    public String getChargeCode()
+    {
+        return _chargeCode;
+    }
+
+    public Person getManager()
+    {
+        return _manager;
+    }
+}
@@ -0,0 +1,251 @@
+// MfDate.java - Local extension of Date backed by an epoch day number
+
+package com.refactoring.stategies.B_Moving_Features_Between_Objects;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * The local extension of {@link B8_Introduce_Local_Extension}, holding a date
+ * as the number of days since 1970-01-01 instead of wrapping a Date.
+ *
+ * Calendar fields are worked out arithmetically from the day number (using
+ * the civil-from-days algorithm of Howard Hinnant), so nextDay and dayOfYear
+ * go through neither the deprecated Date getters nor a Calendar. The static
+ * methods take and return the day number itself, so code working on columns
+ * of dates can keep them in an int[] and never create an MfDate at all.
+ */
+public final class MfDate implements Comparable<MfDate>
+{
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final int DAYS_PER_ERA = 146097;
+    private static final int EPOCH_SHIFT = 719468;
+
+    private final int _epochDay;
+
+    public MfDate(int epochDay)
+    {
+        _epochDay = epochDay;
+    }
+
+    /**
+     * Converts the original, taking the calendar date it falls on in the
+     * default time zone, as the Date getters do.
+     */
+    public MfDate(Date arg)
+    {
+        this(epochDay(arg));
+    }
+
+    public static MfDate of(int year, int month, int dayOfMonth)
+    {
+        return new MfDate(epochDay(year, month, dayOfMonth));
+    }
+
+    public int getEpochDay()
+    {
+        return _epochDay;
+    }
+
+    public int getYear()
+    {
+        return year(_epochDay);
+    }
+
+    /**
+     * Returns the month, from 1 for January.
+     */
+    public int getMonth()
+    {
+        return month(_epochDay);
+    }
+
+    public int getDayOfMonth()
+    {
+        return dayOfMonth(_epochDay);
+    }
+
+    public int dayOfYear()
+    {
+        return dayOfYear(_epochDay);
+    }
+
+    public MfDate nextDay()
+    {
+        return new MfDate(_epochDay + 1);
+    }
+
+    public MfDate plusDays(int days)
+    {
+        return new MfDate(_epochDay + days);
+    }
+
+    /**
+     * Returns the start of the day in the default time zone. That is not
+     * always midnight: where daylight saving starts at midnight the day
+     * begins at one in the morning, and a day the zone skips altogether gives
+     * the start of the next.
+     */
+    public Date toDate()
+    {
+        return Date.from(LocalDate.ofEpochDay(_epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    public boolean after(MfDate arg)
+    {
+        return _epochDay > arg._epochDay;
+    }
+
+    public boolean before(MfDate arg)
+    {
+        return _epochDay < arg._epochDay;
+    }
+
+    @Override
+    public int compareTo(MfDate arg)
+    {
+        return Integer.compare(_epochDay, arg._epochDay);
+    }
+
+    @Override
+    public boolean equals(Object arg)
+    {
+        if (this == arg)
+        {
+            return true;
+        }
+        if (!(arg instanceof MfDate))
+        {
+            return false;
+        }
+        return _epochDay == ((MfDate) arg)._epochDay;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return _epochDay;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%04d-%02d-%02d", getYear(), getMonth(), getDayOfMonth());
+    }
+
+    public static int epochDay(Date arg)
+    {
+        final long millis = arg.getTime();
+        return (int) Math.floorDiv(millis + TimeZone.getDefault().getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    public static int epochDay(int year, int month, int dayOfMonth)
+    {
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = Math.floorDiv(y, 400);
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - EPOCH_SHIFT;
+    }
+
+    public static int year(int epochDay)
+    {
+        final int shifted = epochDay + EPOCH_SHIFT;
+        final int era = Math.floorDiv(shifted, DAYS_PER_ERA);
+        final int dayOfEra = shifted - era * DAYS_PER_ERA;
+        final int yearOfEra = yearOfEra(dayOfEra);
+        final int marchMonth = marchMonth(dayOfEra - daysBeforeYearOfEra(yearOfEra));
+        return yearOfEra + era * 400 + (marchMonth >= 10 ? 1 : 0);
+    }
+
+    public static int month(int epochDay)
+    {
+        final int marchMonth = marchMonth(dayOfMarchYear(epochDay));
+        return marchMonth < 10 ? marchMonth + 3 : marchMonth - 9;
+    }
+
+    public static int dayOfMonth(int epochDay)
+    {
+        final int dayOfMarchYear = dayOfMarchYear(epochDay);
+        return dayOfMarchYear - (153 * marchMonth(dayOfMarchYear) + 2) / 5 + 1;
+    }
+
+    public static int dayOfYear(int epochDay)
+    {
+        return epochDay - epochDay(year(epochDay), 1, 1) + 1;
+    }
+
+    public static int nextDay(int epochDay)
+    {
+        return epochDay + 1;
+    }
+
+    public static int plusDays(int epochDay, int days)
+    {
+        return epochDay + days;
+    }
+
+    /**
+     * Adds the days to every date in the column, in place.
+     */
+    public static void plusDays(int[] epochDays, int days)
+    {
+        for (int i = 0; i < epochDays.length; i++)
+        {
+            epochDays[i] += days;
+        }
+    }
+
+    public static void years(int[] epochDays, int[] result)
+    {
+        for (int i = 0; i < epochDays.length; i++)
+        {
+            result[i] = year(epochDays[i]);
+        }
+    }
+
+    public static void months(int[] epochDays, int[] result)
+    {
+        for (int i = 0; i < epochDays.length; i++)
+        {
+            result[i] = month(epochDays[i]);
+        }
+    }
+
+    public static void daysOfYear(int[] epochDays, int[] result)
+    {
+        for (int i = 0; i < epochDays.length; i++)
+        {
+            result[i] = dayOfYear(epochDays[i]);
+        }
+    }
+
+    /**
+     * Returns the day within a year starting on 1 March, which puts the leap
+     * day last and makes month lengths regular.
+     */
+    private static int dayOfMarchYear(int epochDay)
+    {
+        final int shifted = epochDay + EPOCH_SHIFT;
+        final int dayOfEra = shifted - Math.floorDiv(shifted, DAYS_PER_ERA) * DAYS_PER_ERA;
+        return dayOfEra - daysBeforeYearOfEra(yearOfEra(dayOfEra));
+    }
+
+    private static int yearOfEra(int dayOfEra)
+    {
+        return (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    }
+
+    private static int daysBeforeYearOfEra(int yearOfEra)
+    {
+        return 365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100;
+    }
+
+    private static int marchMonth(int dayOfMarchYear)
+    {
+        return (5 * dayOfMarchYear + 2) / 153;
+    }
+}
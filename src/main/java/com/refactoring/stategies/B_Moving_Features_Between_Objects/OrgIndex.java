@@ -0,0 +1,285 @@
+// OrgIndex.java - Manager and reports lookups over dense person ids
+
+package com.refactoring.stategies.B_Moving_Features_Between_Objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers "who manages X" and "who reports to Y" without going through
+ * {@link Person#getManager()} and its department each time.
+ *
+ * People are given dense ids in the order they are added. The manager of each
+ * id is kept in an int[], and the direct reports of each id in an int[] of
+ * their own, so the chain of command and all transitive reports are found by
+ * walking arrays rather than objects. Call {@link #update(Person)} when a
+ * person moves department, or use {@link #setManager(int, int)} directly.
+ * A department's manager is usually in the department too, so a person
+ * whose manager is themself is taken to have no manager.
+ *
+ * Not safe for concurrent change; build or update the index from one thread.
+ */
+public class OrgIndex
+{
+    public static final int NONE = -1;
+
+    private final Map<Person, Integer> _ids = new HashMap<Person, Integer>();
+    private final List<Person> _people = new ArrayList<Person>();
+    private int[] _managers = new int[16];
+    private int[][] _reports = new int[16][];
+    private int[] _reportCounts = new int[16];
+    // where each person sits in their manager's reports, for O(1) removal
+    private int[] _reportSlots = new int[16];
+
+    /**
+     * Adds the people and then records each one's manager, so managers can be
+     * given in any order. Nothing is added if the managers would form a loop.
+     */
+    public void addAll(List<Person> people)
+    {
+        final Map<Person, Person> managers = new HashMap<Person, Person>();
+        for (Person each : people)
+        {
+            if (each == null)
+            {
+                throw new IllegalArgumentException("Cannot index a null person");
+            }
+            managers.put(each, managerOf(each));
+        }
+        for (Person each : people)
+        {
+            checkNoLoop(each, managers);
+        }
+        for (Person each : people)
+        {
+            idOf(each);
+        }
+        for (Person each : people)
+        {
+            update(each);
+        }
+    }
+
+    public int getId(Person person)
+    {
+        final Integer result = _ids.get(person);
+        return result == null ? NONE : result;
+    }
+
+    public Person getPerson(int id)
+    {
+        return _people.get(id);
+    }
+
+    public int size()
+    {
+        return _people.size();
+    }
+
+    /**
+     * Re-reads the person's manager, adding the person and manager to the
+     * index if they are new.
+     */
+    public void update(Person person)
+    {
+        final Person manager = managerOf(person);
+        setManager(idOf(person), manager == null ? NONE : idOf(manager));
+    }
+
+    public void setManager(int id, int manager)
+    {
+        checkId(id);
+        if (manager != NONE)
+        {
+            checkId(manager);
+            for (int each = manager; each != NONE; each = _managers[each])
+            {
+                if (each == id)
+                {
+                    throw new IllegalArgumentException(_people.get(id).getName()
+                            + " cannot report to someone in their own reporting line");
+                }
+            }
+        }
+        final int previous = _managers[id];
+        if (previous == manager)
+        {
+            return;
+        }
+        if (previous != NONE)
+        {
+            removeReport(previous, id);
+        }
+        if (manager != NONE)
+        {
+            addReport(manager, id);
+        }
+        _managers[id] = manager;
+    }
+
+    public int getManager(int id)
+    {
+        checkId(id);
+        return _managers[id];
+    }
+
+    public int[] getReports(int id)
+    {
+        checkId(id);
+        return _reports[id] == null ? new int[0] : Arrays.copyOf(_reports[id], _reportCounts[id]);
+    }
+
+    /**
+     * Returns the person's manager, their manager, and so on to the top.
+     */
+    public int[] getChainOfCommand(int id)
+    {
+        checkId(id);
+        int length = 0;
+        for (int each = _managers[id]; each != NONE; each = _managers[each])
+        {
+            length++;
+        }
+        final int[] result = new int[length];
+        int index = 0;
+        for (int each = _managers[id]; each != NONE; each = _managers[each])
+        {
+            result[index++] = each;
+        }
+        return result;
+    }
+
+    public boolean isInChainOfCommand(int id, int manager)
+    {
+        checkId(id);
+        for (int each = _managers[id]; each != NONE; each = _managers[each])
+        {
+            if (each == manager)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns everyone who reports to the person directly or indirectly,
+     * nearest first.
+     */
+    public int[] getAllReports(int id)
+    {
+        checkId(id);
+        int[] result = new int[Math.max(_reportCounts[id], 4)];
+        int size = 0;
+        int next = 0;
+        int current = id;
+        while (true)
+        {
+            final int count = _reportCounts[current];
+            if (size + count > result.length)
+            {
+                result = Arrays.copyOf(result, Math.max(result.length * 2, size + count));
+            }
+            if (count > 0)
+            {
+                System.arraycopy(_reports[current], 0, result, size, count);
+                size += count;
+            }
+            if (next == size)
+            {
+                return Arrays.copyOf(result, size);
+            }
+            current = result[next++];
+        }
+    }
+
+    private static Person managerOf(Person person)
+    {
+        final Person result = person.getManager();
+        return result == person ? null : result;
+    }
+
+    /**
+     * Walks up from the person, taking managers from the batch being added
+     * and from the index for everyone else, and fails on coming back round.
+     */
+    private void checkNoLoop(Person person, Map<Person, Person> batch)
+    {
+        final Set<Person> seen = new HashSet<Person>();
+        Person each = person;
+        while (each != null)
+        {
+            if (!seen.add(each))
+            {
+                throw new IllegalArgumentException(person.getName()
+                        + " cannot report to someone in their own reporting line");
+            }
+            if (batch.containsKey(each))
+            {
+                each = batch.get(each);
+            }
+            else
+            {
+                final int id = getId(each);
+                each = id == NONE || _managers[id] == NONE ? null : _people.get(_managers[id]);
+            }
+        }
+    }
+
+    private int idOf(Person person)
+    {
+        Integer result = _ids.get(person);
+        if (result == null)
+        {
+            result = _people.size();
+            if (result == _managers.length)
+            {
+                final int capacity = result * 2;
+                _managers = Arrays.copyOf(_managers, capacity);
+                _reports = Arrays.copyOf(_reports, capacity);
+                _reportCounts = Arrays.copyOf(_reportCounts, capacity);
+                _reportSlots = Arrays.copyOf(_reportSlots, capacity);
+            }
+            _managers[result] = NONE;
+            _people.add(person);
+            _ids.put(person, result);
+        }
+        return result;
+    }
+
+    private void addReport(int manager, int id)
+    {
+        int[] reports = _reports[manager];
+        final int count = _reportCounts[manager];
+        if (reports == null || count == reports.length)
+        {
+            reports = reports == null ? new int[4] : Arrays.copyOf(reports, count * 2);
+            _reports[manager] = reports;
+        }
+        reports[count] = id;
+        _reportSlots[id] = count;
+        _reportCounts[manager] = count + 1;
+    }
+
+    private void removeReport(int manager, int id)
+    {
+        final int[] reports = _reports[manager];
+        final int last = --_reportCounts[manager];
+        final int slot = _reportSlots[id];
+        reports[slot] = reports[last];
+        _reportSlots[reports[slot]] = slot;
+    }
+
+    private void checkId(int id)
+    {
+        if (id < 0 || id >= _people.size())
+        {
+            throw new IndexOutOfBoundsException("No person " + id);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+// Person.java - Person whose manager is found through the department
+
+package com.refactoring.stategies.B_Moving_Features_Between_Objects;
+
+/**
+ * The person of {@link B5_Hide_Delegate}, with the department hidden behind
+ * getManager.
+ */
+public class Person
+{
+    private final String _name;
+    private Department _department;
+
+    public Person(String name)
+    {
+        _name = name;
+    }
+
+    public String getName()
+    {
+        return _name;
+    }
+
+    public void setDepartment(Department arg)
+    {
+        _department = arg;
+    }
+
+    public Person getManager()
+    {
+        return _department == null ? null : _department.getManager();
+    }
+}
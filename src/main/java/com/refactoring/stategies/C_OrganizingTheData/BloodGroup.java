@@ -0,0 +1,45 @@
+// BloodGroup.java - Blood group type code as a flyweight class
+
+package com.refactoring.stategies.C_OrganizingTheData;
+
+/**
+ * The class that replaces Person's int blood group code in
+ * {@link C91_Replace_Record_with_Data_Class}. There is one instance per code,
+ * so the codes can be stored packed in a {@link PackedCodeColumn} and turned
+ * back into a BloodGroup on the way out.
+ */
+public class BloodGroup
+{
+    public static final BloodGroup O = new BloodGroup(0);
+    public static final BloodGroup A = new BloodGroup(1);
+    public static final BloodGroup B = new BloodGroup(2);
+    public static final BloodGroup AB = new BloodGroup(3);
+    private static final BloodGroup[] _values = {O, A, B, AB};
+
+    private final int _code;
+
+    private BloodGroup(int code)
+    {
+        _code = code;
+    }
+
+    public int getCode()
+    {
+        return _code;
+    }
+
+    public static BloodGroup code(int arg)
+    {
+        return _values[arg];
+    }
+
+    public static int count()
+    {
+        return _values.length;
+    }
+
+    public static PackedCodeColumn<BloodGroup> newColumn()
+    {
+        return new PackedCodeColumn<BloodGroup>(count(), BloodGroup::code, BloodGroup::getCode);
+    }
+}
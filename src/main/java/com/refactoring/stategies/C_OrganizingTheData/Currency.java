@@ -0,0 +1,144 @@
+// Currency.java - ISO currency value object with a canonical instance per code
+
+package com.refactoring.stategies.C_OrganizingTheData;
+
+import java.util.Arrays;
+
+/**
+ * The currency of {@link C4_Change_Reference_to_Value} after it became a value
+ * object, with the three-letter ISO code packed into an int.
+ *
+ * Equal currencies may still be separate objects, but {@link #of(String)}
+ * returns one canonical instance per code, so currencies obtained that way
+ * compare equal on identity without looking at the code. Canonical currencies
+ * are numbered densely in the order they are first asked for, which lets
+ * {@link CurrencyTotals} index arrays by currency.
+ */
+public class Currency
+{
+    private static final int LETTER_BITS = 5;
+    private static final int CODE_SPACE = 1 << (3 * LETTER_BITS);
+
+    // written under the class lock, read without it: the fields of a Currency
+    // are final, so a reader that sees an instance sees it fully built
+    private static final Currency[] _canonical = new Currency[CODE_SPACE];
+    private static Currency[] _byOrdinal = new Currency[16];
+    private static int _nextOrdinal;
+
+    private final int _packedCode;
+    private final int _ordinal;
+
+    public Currency(String code)
+    {
+        this(pack(code), -1);
+    }
+
+    private Currency(int packedCode, int ordinal)
+    {
+        _packedCode = packedCode;
+        _ordinal = ordinal;
+    }
+
+    public static Currency of(String code)
+    {
+        return canonical(pack(code));
+    }
+
+    /**
+     * Returns the canonical instance, taking the class lock only the first
+     * time a code is seen.
+     */
+    private static Currency canonical(int packed)
+    {
+        final Currency result = _canonical[packed];
+        return result != null ? result : register(packed);
+    }
+
+    private static synchronized Currency register(int packed)
+    {
+        Currency result = _canonical[packed];
+        if (result == null)
+        {
+            result = new Currency(packed, _nextOrdinal++);
+            if (result._ordinal == _byOrdinal.length)
+            {
+                _byOrdinal = Arrays.copyOf(_byOrdinal, _byOrdinal.length * 2);
+            }
+            _byOrdinal[result._ordinal] = result;
+            _canonical[packed] = result;
+        }
+        return result;
+    }
+
+    public String getCode()
+    {
+        final char[] result = new char[3];
+        for (int i = 0; i < 3; i++)
+        {
+            result[i] = (char) ('A' + ((_packedCode >>> (LETTER_BITS * (2 - i))) & 0x1F));
+        }
+        return new String(result);
+    }
+
+    /**
+     * Returns the dense number of the canonical instance of this currency.
+     */
+    public int ordinal()
+    {
+        return _ordinal >= 0 ? _ordinal : canonical(_packedCode)._ordinal;
+    }
+
+    static synchronized Currency forOrdinal(int ordinal)
+    {
+        if (ordinal < 0 || ordinal >= _nextOrdinal)
+        {
+            throw new IllegalArgumentException("No currency numbered " + ordinal);
+        }
+        return _byOrdinal[ordinal];
+    }
+
+    @Override
+    public boolean equals(Object arg)
+    {
+        if (this == arg)
+        {
+            return true;
+        }
+        if (!(arg instanceof Currency))
+        {
+            return false;
+        }
+        return _packedCode == ((Currency) arg)._packedCode;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return _packedCode;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getCode();
+    }
+
+    private static int pack(String code)
+    {
+        if (code.length() != 3)
+        {
+            throw new IllegalArgumentException("Not an ISO currency code: " + code);
+        }
+        int result = 0;
+        for (int i = 0; i < 3; i++)
+        {
+            final char letter = code.charAt(i);
+            if (letter < 'A' || letter > 'Z')
+            {
+                throw new IllegalArgumentException("Not an ISO currency code: " + code);
+            }
+            result = (result << LETTER_BITS) | (letter - 'A');
+        }
+        return result;
+    }
+}
@@ -0,0 +1,76 @@
+// CurrencyTotals.java - Per-currency running totals held in a dense array
+
+package com.refactoring.stategies.C_OrganizingTheData;
+
+import java.util.Arrays;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Sums amounts per currency, like an EnumMap of doubles: the total for a
+ * currency sits at its {@link Currency#ordinal()} in a primitive array, so
+ * adding an amount neither hashes nor boxes. Not safe for concurrent use;
+ * give each thread its own totals and {@link #addAll(CurrencyTotals)} them.
+ */
+public class CurrencyTotals
+{
+    private double[] _totals = new double[8];
+    private boolean[] _present = new boolean[8];
+
+    public void add(Currency currency, double amount)
+    {
+        final int ordinal = currency.ordinal();
+        if (ordinal >= _totals.length)
+        {
+            grow(ordinal + 1);
+        }
+        _totals[ordinal] += amount;
+        _present[ordinal] = true;
+    }
+
+    public double get(Currency currency)
+    {
+        final int ordinal = currency.ordinal();
+        return ordinal < _totals.length ? _totals[ordinal] : 0;
+    }
+
+    public boolean contains(Currency currency)
+    {
+        final int ordinal = currency.ordinal();
+        return ordinal < _present.length && _present[ordinal];
+    }
+
+    public void addAll(CurrencyTotals other)
+    {
+        if (other._totals.length > _totals.length)
+        {
+            grow(other._totals.length);
+        }
+        for (int i = 0; i < other._totals.length; i++)
+        {
+            _totals[i] += other._totals[i];
+            _present[i] |= other._present[i];
+        }
+    }
+
+    /**
+     * Passes each currency that has had an amount added, with its total, in
+     * ordinal order.
+     */
+    public void forEach(ObjDoubleConsumer<Currency> action)
+    {
+        for (int i = 0; i < _totals.length; i++)
+        {
+            if (_present[i])
+            {
+                action.accept(Currency.forOrdinal(i), _totals[i]);
+            }
+        }
+    }
+
+    private void grow(int length)
+    {
+        final int newLength = Math.max(length, _totals.length * 2);
+        _totals = Arrays.copyOf(_totals, newLength);
+        _present = Arrays.copyOf(_present, newLength);
+    }
+}
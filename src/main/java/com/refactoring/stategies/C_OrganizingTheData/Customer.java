@@ -0,0 +1,57 @@
+// Customer.java - Customer as a reference object, one instance per name
+
+package com.refactoring.stategies.C_OrganizingTheData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The customer of {@link C3_Change_Value_to_Reference} after the refactoring:
+ * instances are only obtained through {@link #getNamed(String)}, which returns
+ * the shared instance for the name.
+ */
+public class Customer
+{
+    private static final NamedRegistry<Customer> _instances = new NamedRegistry<Customer>(Customer::new, false);
+
+    private final String _name;
+
+    private Customer(String name)
+    {
+        _name = name;
+    }
+
+    public static Customer getNamed(String name)
+    {
+        return _instances.get(name);
+    }
+
+    /**
+     * Returns the customer with the given name, creating it if it has not
+     * been loaded.
+     */
+    public static Customer create(String name)
+    {
+        return _instances.getOrCreate(name);
+    }
+
+    static void loadCustomers()
+    {
+        create("Lemon Car Hire");
+        create("Associated Coffee Machines");
+        create("Bilston Gasworks");
+    }
+
+    /**
+     * Loads one customer per line of the file.
+     */
+    static long loadCustomers(Path file) throws IOException
+    {
+        return _instances.load(file);
+    }
+
+    public String getName()
+    {
+        return _name;
+    }
+}
@@ -0,0 +1,63 @@
+// Employee.java - Employee whose type code is a changeable state object
+
+package com.refactoring.stategies.C_OrganizingTheData;
+
+/**
+ * The employee of {@link C93_Replace_Type_Code_with_State_OR_Strategy} after
+ * the refactoring: the type can change at any time, and pay is worked out by
+ * the type object.
+ */
+public class Employee
+{
+    public static final int ENGINEER = 0;
+    public static final int SALESMAN = 1;
+    public static final int MANAGER = 2;
+
+    private EmployeeType _type;
+    private int _monthlySalary;
+    private int _commission;
+    private int _bonus;
+
+    public Employee(int type, int monthlySalary, int commission, int bonus)
+    {
+        setType(type);
+        _monthlySalary = monthlySalary;
+        _commission = commission;
+        _bonus = bonus;
+    }
+
+    public int getType()
+    {
+        return _type.getTypeCode();
+    }
+
+    public void setType(int arg)
+    {
+        _type = EmployeeType.newType(arg);
+    }
+
+    public int getMonthlySalary()
+    {
+        return _monthlySalary;
+    }
+
+    public void setMonthlySalary(int arg)
+    {
+        _monthlySalary = arg;
+    }
+
+    public int getCommission()
+    {
+        return _commission;
+    }
+
+    public int getBonus()
+    {
+        return _bonus;
+    }
+
+    public int payAmount()
+    {
+        return _type.payAmount(this);
+    }
+}
@@ -0,0 +1,82 @@
+// EmployeeType.java - State object for the employee type code
+
+package com.refactoring.stategies.C_OrganizingTheData;
+
+/**
+ * The state class of {@link C93_Replace_Type_Code_with_State_OR_Strategy},
+ * carried on to the polymorphic payAmount of Replace Conditional with
+ * Polymorphism. The types hold no state, so one instance of each is shared.
+ */
+abstract class EmployeeType
+{
+    static final int TYPE_COUNT = 3;
+
+    private static final EmployeeType[] _types = {new Engineer(), new Salesman(), new Manager()};
+
+    static EmployeeType newType(int code)
+    {
+        if (code < 0 || code >= _types.length)
+        {
+            throw new IllegalArgumentException("Incorrect Employee Code");
+        }
+        return _types[code];
+    }
+
+    abstract int getTypeCode();
+
+    int payAmount(Employee emp)
+    {
+        return emp.getMonthlySalary() + extraPay(emp.getCommission(), emp.getBonus());
+    }
+
+    /**
+     * Returns what the type pays on top of the monthly salary, chosen from the
+     * employee's commission and bonus.
+     */
+    abstract int extraPay(int commission, int bonus);
+
+    private static class Engineer extends EmployeeType
+    {
+        @Override
+        int getTypeCode()
+        {
+            return Employee.ENGINEER;
+        }
+
+        @Override
+        int extraPay(int commission, int bonus)
+        {
+            return 0;
+        }
+    }
+
+    private static class Salesman extends EmployeeType
+    {
+        @Override
+        int getTypeCode()
+        {
+            return Employee.SALESMAN;
+        }
+
+        @Override
+        int extraPay(int commission, int bonus)
+        {
+            return commission;
+        }
+    }
+
+    private static class Manager extends EmployeeType
+    {
+        @Override
+        int getTypeCode()
+        {
+            return Employee.MANAGER;
+        }
+
+        @Override
+        int extraPay(int commission, int bonus)
+        {
+            return bonus;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+// NamedRegistry.java - Concurrent name-to-instance registry for reference objects
+
+package com.refactoring.stategies.C_OrganizingTheData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * The access point for reference objects described in
+ * {@link C3_Change_Value_to_Reference}, in place of a static Hashtable.
+ *
+ * Lookups of existing instances read a ConcurrentHashMap and take no lock;
+ * only creating a missing instance locks, and then only the bin it lands in,
+ * so two threads asking for the same new name still share one instance.
+ *
+ * A weak registry only holds instances while something else refers to them,
+ * so inactive ones can be collected; entries for collected instances are
+ * cleared as the registry is used. Instances preloaded into a weak registry
+ * will not stay loaded unless they are referenced elsewhere.
+ */
+public class NamedRegistry<T>
+{
+    private final Function<String, T> _factory;
+    private final boolean _weak;
+    // values are T, or NamedReference<T> for a weak registry
+    private final ConcurrentMap<String, Object> _instances = new ConcurrentHashMap<String, Object>();
+    private final ReferenceQueue<T> _collected = new ReferenceQueue<T>();
+
+    public NamedRegistry(Function<String, T> factory, boolean weak)
+    {
+        _factory = factory;
+        _weak = weak;
+    }
+
+    /**
+     * Returns the instance with the given name, or null if there is none.
+     */
+    public T get(String name)
+    {
+        return deref(_instances.get(name));
+    }
+
+    public T getOrCreate(String name)
+    {
+        final T existing = get(name);
+        if (existing != null)
+        {
+            return existing;
+        }
+        if (!_weak)
+        {
+            return cast(_instances.computeIfAbsent(name, _factory));
+        }
+
+        expungeCollected();
+        final Object[] result = new Object[1];
+        _instances.compute(name, (key, value) -> {
+            T instance = deref(value);
+            if (instance != null)
+            {
+                result[0] = instance;
+                return value;
+            }
+            instance = _factory.apply(key);
+            result[0] = instance;
+            return new NamedReference<T>(key, instance, _collected);
+        });
+        return cast(result[0]);
+    }
+
+    public boolean contains(String name)
+    {
+        return get(name) != null;
+    }
+
+    /**
+     * Returns the number of names registered, which for a weak registry may
+     * include instances collected but not yet cleared.
+     */
+    public int size()
+    {
+        expungeCollected();
+        return _instances.size();
+    }
+
+    /**
+     * Creates an instance for each non-blank line of the file, reading the
+     * file in parallel, and returns the number of lines loaded.
+     */
+    public long load(Path file) throws IOException
+    {
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8))
+        {
+            final LongAdder result = new LongAdder();
+            lines.parallel()
+                    .map(String::trim)
+                    .filter(each -> !each.isEmpty())
+                    .forEach(each -> {
+                        getOrCreate(each);
+                        result.increment();
+                    });
+            return result.sum();
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    private void expungeCollected()
+    {
+        NamedReference<?> each;
+        while ((each = (NamedReference<?>) _collected.poll()) != null)
+        {
+            _instances.remove(each._name, each);
+        }
+    }
+
+    private T deref(Object value)
+    {
+        if (value instanceof NamedReference)
+        {
+            return cast(((NamedReference<?>) value).get());
+        }
+        return cast(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value)
+    {
+        return (T) value;
+    }
+
+    private static class NamedReference<T> extends WeakReference<T>
+    {
+        private final String _name;
+
+        NamedReference(String name, T referent, ReferenceQueue<T> queue)
+        {
+            super(referent, queue);
+            _name = name;
+        }
+    }
+}
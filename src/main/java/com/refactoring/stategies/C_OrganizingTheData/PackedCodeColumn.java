@@ -0,0 +1,188 @@
+// PackedCodeColumn.java - Column of small type codes bit-packed into longs
+
+package com.refactoring.stategies.C_OrganizingTheData;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Stores one small type code per record, packed into as few bits as the
+ * number of codes needs: a blood group takes two bits rather than an int or a
+ * reference. Reading a record gives back the flyweight object for its code.
+ *
+ * Codes never straddle two longs, so counting or finding the records with a
+ * given code works on a whole long at a time: the long is compared against
+ * the code repeated in every slot, and the slots that come out all zero are
+ * the matches.
+ */
+public class PackedCodeColumn<T>
+{
+    private final IntFunction<T> _decode;
+    private final ToIntFunction<T> _encode;
+    private final int _codeCount;
+    private final int _bits;
+    private final int _slotsPerWord;
+    private final long _slotMask;
+    // the lowest bit of every slot in a word
+    private final long _lowBits;
+
+    private long[] _words = new long[16];
+    private int _size;
+
+    public PackedCodeColumn(int codeCount, IntFunction<T> decode, ToIntFunction<T> encode)
+    {
+        if (codeCount < 1)
+        {
+            throw new IllegalArgumentException("A column needs at least one code");
+        }
+        _codeCount = codeCount;
+        _decode = decode;
+        _encode = encode;
+        _bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(codeCount - 1));
+        _slotsPerWord = 64 / _bits;
+        _slotMask = (1L << _bits) - 1;
+        long lowBits = 0;
+        for (int slot = 0; slot < _slotsPerWord; slot++)
+        {
+            lowBits |= 1L << (slot * _bits);
+        }
+        _lowBits = lowBits;
+    }
+
+    public int add(T value)
+    {
+        final int code = encode(value);
+        final int index = _size;
+        if (index / _slotsPerWord == _words.length)
+        {
+            _words = Arrays.copyOf(_words, _words.length * 2);
+        }
+        _size++;
+        setCode(index, code);
+        return index;
+    }
+
+    public T get(int index)
+    {
+        return _decode.apply(getCode(index));
+    }
+
+    public void set(int index, T value)
+    {
+        setCode(index, encode(value));
+    }
+
+    public int getCode(int index)
+    {
+        checkIndex(index);
+        return (int) ((_words[index / _slotsPerWord] >>> shift(index)) & _slotMask);
+    }
+
+    public int size()
+    {
+        return _size;
+    }
+
+    public int count(T value)
+    {
+        final int code = _encode.applyAsInt(value);
+        int result = 0;
+        for (int word = 0; word < wordCount(); word++)
+        {
+            result += Long.bitCount(matches(word, code));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of records with each code, indexed by code.
+     */
+    public int[] counts()
+    {
+        final int[] result = new int[_codeCount];
+        for (int code = 0; code < _codeCount; code++)
+        {
+            result[code] = count(_decode.apply(code));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the indexes of the records holding the value, in order.
+     */
+    public int[] indexesOf(T value)
+    {
+        final int code = _encode.applyAsInt(value);
+        final int[] result = new int[count(value)];
+        int found = 0;
+        for (int word = 0; word < wordCount(); word++)
+        {
+            long matches = matches(word, code);
+            while (matches != 0)
+            {
+                final int slot = Long.numberOfTrailingZeros(matches) / _bits;
+                result[found++] = word * _slotsPerWord + slot;
+                matches &= matches - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a word with the lowest bit of each slot set where the slot holds
+     * the code, for the records in use only.
+     */
+    private long matches(int word, int code)
+    {
+        long difference = _words[word] ^ (_lowBits * code);
+        long anyBitSet = difference;
+        for (int bit = 1; bit < _bits; bit++)
+        {
+            anyBitSet |= difference >>> bit;
+        }
+        long result = ~anyBitSet & _lowBits;
+        final int used = Math.min(_slotsPerWord, _size - word * _slotsPerWord);
+        if (used < _slotsPerWord)
+        {
+            result &= (1L << (used * _bits)) - 1;
+        }
+        return result;
+    }
+
+    private int encode(T value)
+    {
+        final int result = _encode.applyAsInt(value);
+        if (result < 0 || result >= _codeCount)
+        {
+            throw new IllegalArgumentException("Code " + result + " is outside 0.." + (_codeCount - 1));
+        }
+        return result;
+    }
+
+    private void setCode(int index, int code)
+    {
+        checkIndex(index);
+        final int word = index / _slotsPerWord;
+        final int shift = shift(index);
+        _words[word] = (_words[word] & ~(_slotMask << shift)) | ((long) code << shift);
+    }
+
+    private int shift(int index)
+    {
+        return (index % _slotsPerWord) * _bits;
+    }
+
+    private int wordCount()
+    {
+        return (_size + _slotsPerWord - 1) / _slotsPerWord;
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= _size)
+        {
+            throw new IndexOutOfBoundsException("No record " + index);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+// Payroll.java - Columnar, parallel payroll run over employees grouped by type
+
+package com.refactoring.stategies.C_OrganizingTheData;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Runs payroll for a large workforce without a virtual payAmount call per
+ * employee.
+ *
+ * Employees are grouped by type into primitive columns of their salaries and
+ * of the extra pay their {@link EmployeeType} picks for them; each group is then summed with a parallel loop that does the
+ * same thing for every element. The totals are the same as summing
+ * {@link Employee#payAmount()} over everyone.
+ *
+ * To pay a workforce that may change during the run, build the payroll from a
+ * {@link Workforce.Snapshot}; it then pays everyone as they were at that
+ * version, whatever promotions land meanwhile.
+ */
+public class Payroll
+{
+    private final int[][] _salaries = new int[EmployeeType.TYPE_COUNT][];
+    // what EmployeeType.extraPay gives each employee on top of salary
+    private final int[][] _extras = new int[EmployeeType.TYPE_COUNT][];
+
+    public Payroll(Collection<Employee> employees)
+    {
+        this(employees.toArray(new Employee[0]));
+    }
+
+    public Payroll(Workforce.Snapshot snapshot)
+    {
+        this(snapshot.size(), snapshot::getType, snapshot::getMonthlySalary,
+                snapshot::getCommission, snapshot::getBonus);
+    }
+
+    private Payroll(Employee[] employees)
+    {
+        this(employees.length, i -> employees[i].getType(), i -> employees[i].getMonthlySalary(),
+                i -> employees[i].getCommission(), i -> employees[i].getBonus());
+    }
+
+    private Payroll(int size, IntUnaryOperator types, IntUnaryOperator salaries,
+            IntUnaryOperator commissions, IntUnaryOperator bonuses)
+    {
+        // types are read once, so a type changing during construction cannot
+        // make the grouping disagree with the counts
+        final int[] typeOf = new int[size];
+        final int[] counts = new int[EmployeeType.TYPE_COUNT];
+        for (int i = 0; i < size; i++)
+        {
+            typeOf[i] = types.applyAsInt(i);
+            counts[typeOf[i]]++;
+        }
+        final EmployeeType[] payRules = new EmployeeType[EmployeeType.TYPE_COUNT];
+        for (int type = 0; type < EmployeeType.TYPE_COUNT; type++)
+        {
+            payRules[type] = EmployeeType.newType(type);
+            _salaries[type] = new int[counts[type]];
+            _extras[type] = new int[counts[type]];
+        }
+
+        final int[] filled = new int[EmployeeType.TYPE_COUNT];
+        for (int i = 0; i < size; i++)
+        {
+            final int type = typeOf[i];
+            final int index = filled[type]++;
+            _salaries[type][index] = salaries.applyAsInt(i);
+            _extras[type][index] = payRules[type].extraPay(commissions.applyAsInt(i), bonuses.applyAsInt(i));
+        }
+    }
+
+    public Totals run()
+    {
+        final long[] totals = new long[EmployeeType.TYPE_COUNT];
+        final int[] counts = new int[EmployeeType.TYPE_COUNT];
+        for (int type = 0; type < EmployeeType.TYPE_COUNT; type++)
+        {
+            totals[type] = sum(_salaries[type]) + sum(_extras[type]);
+            counts[type] = _salaries[type].length;
+        }
+        return new Totals(totals, counts);
+    }
+
+    private static long sum(int[] column)
+    {
+        return Arrays.stream(column).parallel().asLongStream().sum();
+    }
+
+    public static class Totals
+    {
+        private final long[] _totals;
+        private final int[] _counts;
+
+        Totals(long[] totals, int[] counts)
+        {
+            _totals = totals;
+            _counts = counts;
+        }
+
+        public long getTotal(int type)
+        {
+            return _totals[type];
+        }
+
+        public int getCount(int type)
+        {
+            return _counts[type];
+        }
+
+        public long getTotal()
+        {
+            long result = 0;
+            for (long each : _totals)
+            {
+                result += each;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+// Workforce.java - Versioned employee records that payroll can read as a snapshot
+
+package com.refactoring.stategies.C_OrganizingTheData;
+
+import java.util.Arrays;
+
+/**
+ * Employee records that can change while a payroll run is reading them.
+ *
+ * An {@link Employee} can have its type changed at any time, so a payroll run
+ * over live employees may see someone half-way through a promotion. Here
+ * every change publishes a new {@link Snapshot} instead: the records are held
+ * in fixed-size chunks, and a change copies only the chunk it touches and the
+ * table of chunks, leaving earlier snapshots as they were. A payroll run takes
+ * a snapshot and reads it without locking; writers only lock out each other.
+ * A promotion changes the type and pay together, so it should go through
+ * {@link #update(int, int, int, int, int)}, which publishes all of them as one
+ * version.
+ */
+public class Workforce
+{
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Object _writeLock = new Object();
+    private volatile Snapshot _current = new Snapshot(new Chunk[0], 0, 0);
+
+    /**
+     * Adds an employee and returns the id to change it by.
+     */
+    public int add(int type, int monthlySalary, int commission, int bonus)
+    {
+        EmployeeType.newType(type);
+        synchronized (_writeLock)
+        {
+            final Snapshot current = _current;
+            final int id = current._size;
+            Chunk[] chunks = current._chunks;
+            if ((id >> CHUNK_BITS) == chunks.length)
+            {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = new Chunk();
+            }
+            // slots past a snapshot's size are never read through it, so the
+            // last chunk can be filled in place
+            final Chunk chunk = chunks[id >> CHUNK_BITS];
+            final int slot = id & CHUNK_MASK;
+            chunk._types[slot] = type;
+            chunk._salaries[slot] = monthlySalary;
+            chunk._commissions[slot] = commission;
+            chunk._bonuses[slot] = bonus;
+            _current = new Snapshot(chunks, id + 1, current._version + 1);
+            return id;
+        }
+    }
+
+    public void setType(int id, int type)
+    {
+        EmployeeType.newType(type);
+        synchronized (_writeLock)
+        {
+            final Chunk[] chunks = copyChunkFor(id);
+            chunks[id >> CHUNK_BITS]._types[id & CHUNK_MASK] = type;
+            publish(chunks);
+        }
+    }
+
+    /**
+     * Replaces every field of the employee in one version, so no snapshot
+     * shows the new type with the old pay or the other way round.
+     */
+    public void update(int id, int type, int monthlySalary, int commission, int bonus)
+    {
+        EmployeeType.newType(type);
+        synchronized (_writeLock)
+        {
+            final Chunk[] chunks = copyChunkFor(id);
+            final Chunk chunk = chunks[id >> CHUNK_BITS];
+            final int slot = id & CHUNK_MASK;
+            chunk._types[slot] = type;
+            chunk._salaries[slot] = monthlySalary;
+            chunk._commissions[slot] = commission;
+            chunk._bonuses[slot] = bonus;
+            publish(chunks);
+        }
+    }
+
+    public void setMonthlySalary(int id, int monthlySalary)
+    {
+        synchronized (_writeLock)
+        {
+            final Chunk[] chunks = copyChunkFor(id);
+            chunks[id >> CHUNK_BITS]._salaries[id & CHUNK_MASK] = monthlySalary;
+            publish(chunks);
+        }
+    }
+
+    public Snapshot snapshot()
+    {
+        return _current;
+    }
+
+    /**
+     * Returns a copy of the chunk table in which the chunk holding the
+     * employee is a private copy the caller may change before publishing.
+     */
+    private Chunk[] copyChunkFor(int id)
+    {
+        final Snapshot current = _current;
+        if (id < 0 || id >= current._size)
+        {
+            throw new IndexOutOfBoundsException("No employee " + id);
+        }
+        final Chunk[] result = current._chunks.clone();
+        result[id >> CHUNK_BITS] = result[id >> CHUNK_BITS].copy();
+        return result;
+    }
+
+    private void publish(Chunk[] chunks)
+    {
+        final Snapshot current = _current;
+        _current = new Snapshot(chunks, current._size, current._version + 1);
+    }
+
+    /**
+     * The employee records as they were at one version; never changes.
+     */
+    public static class Snapshot
+    {
+        private final Chunk[] _chunks;
+        private final int _size;
+        private final long _version;
+
+        private Snapshot(Chunk[] chunks, int size, long version)
+        {
+            _chunks = chunks;
+            _size = size;
+            _version = version;
+        }
+
+        public int size()
+        {
+            return _size;
+        }
+
+        public long getVersion()
+        {
+            return _version;
+        }
+
+        public int getType(int id)
+        {
+            return chunkFor(id)._types[id & CHUNK_MASK];
+        }
+
+        public int getMonthlySalary(int id)
+        {
+            return chunkFor(id)._salaries[id & CHUNK_MASK];
+        }
+
+        public int getCommission(int id)
+        {
+            return chunkFor(id)._commissions[id & CHUNK_MASK];
+        }
+
+        public int getBonus(int id)
+        {
+            return chunkFor(id)._bonuses[id & CHUNK_MASK];
+        }
+
+        private Chunk chunkFor(int id)
+        {
+            if (id < 0 || id >= _size)
+            {
+                throw new IndexOutOfBoundsException("No employee " + id);
+            }
+            return _chunks[id >> CHUNK_BITS];
+        }
+    }
+
+    private static class Chunk
+    {
+        private final int[] _types;
+        private final int[] _salaries;
+        private final int[] _commissions;
+        private final int[] _bonuses;
+
+        Chunk()
+        {
+            this(new int[CHUNK_SIZE], new int[CHUNK_SIZE], new int[CHUNK_SIZE], new int[CHUNK_SIZE]);
+        }
+
+        private Chunk(int[] types, int[] salaries, int[] commissions, int[] bonuses)
+        {
+            _types = types;
+            _salaries = salaries;
+            _commissions = commissions;
+            _bonuses = bonuses;
+        }
+
+        Chunk copy()
+        {
+            return new Chunk(_types.clone(), _salaries.clone(), _commissions.clone(), _bonuses.clone());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+// BloomFilter.java - Bit-set Bloom filter over strings
+
+package com.refactoring.stategies.D_SimplifyingConditionalExpressions;
+
+import java.util.Collection;
+
+/**
+ * A Bloom filter of strings: {@link #mightContain(String)} never misses a
+ * string that was added, and wrongly answers true for others at about the
+ * false positive rate the filter was sized for.
+ *
+ * The bit positions come from two hashes of the string combined as
+ * h1 + i * h2. Reads are safe from many threads once the filter is filled.
+ */
+class BloomFilter
+{
+    private final long[] _bits;
+    private final int _bitCount;
+    private final int _hashCount;
+
+    BloomFilter(Collection<String> elements, double falsePositiveRate)
+    {
+        final int expected = Math.max(elements.size(), 1);
+        final double ln2 = Math.log(2);
+        final long bits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+        _bitCount = (int) Math.min(Math.max(bits, 64), Integer.MAX_VALUE - 63);
+        _bits = new long[(_bitCount + 63) / 64];
+        _hashCount = Math.max(1, (int) Math.round((double) _bitCount / expected * ln2));
+        for (String each : elements)
+        {
+            add(each);
+        }
+    }
+
+    boolean mightContain(String element)
+    {
+        final int h1 = element.hashCode();
+        final int h2 = secondHash(h1);
+        for (int i = 0; i < _hashCount; i++)
+        {
+            final int bit = index(h1 + i * h2);
+            if ((_bits[bit >>> 6] & (1L << bit)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(String element)
+    {
+        final int h1 = element.hashCode();
+        final int h2 = secondHash(h1);
+        for (int i = 0; i < _hashCount; i++)
+        {
+            final int bit = index(h1 + i * h2);
+            _bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private int index(int hash)
+    {
+        return (hash & Integer.MAX_VALUE) % _bitCount;
+    }
+
+    private static int secondHash(int hash)
+    {
+        // murmur3 finaliser, forced odd so successive probes differ
+        int result = hash;
+        result ^= result >>> 16;
+        result *= 0x85EBCA6B;
+        result ^= result >>> 13;
+        result *= 0xC2B2AE35;
+        result ^= result >>> 16;
+        return result | 1;
+    }
+}
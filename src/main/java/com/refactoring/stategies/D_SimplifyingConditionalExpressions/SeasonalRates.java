@@ -0,0 +1,202 @@
+// SeasonalRates.java - Charges by season over epoch-day ranges, in bulk
+
+package com.refactoring.stategies.D_SimplifyingConditionalExpressions;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Arrays;
+
+/**
+ * The summer and winter charges of {@link D1000_Decompose_Conditional},
+ * generalised to any number of seasons and worked out for whole columns of
+ * dates.
+ *
+ * Dates are epoch day numbers. The season boundaries are worked out once into
+ * a sorted table of ranges; each season has a rate per unit and a service
+ * charge, so a charge is quantity * rate + service charge with the season
+ * picking the entries, rather than a branch per season. A column of dates in
+ * ascending order is classified in one pass that moves forward through the
+ * ranges; out-of-order dates fall back to a binary search.
+ */
+public class SeasonalRates
+{
+    private final int[] _bounds;
+    private final int[] _seasons;
+    private final double[] _rates;
+    private final double[] _serviceCharges;
+
+    /**
+     * @param bounds the first day of each range, ascending, followed by the
+     *            day after the last range
+     * @param seasons the season of each range, one fewer than the bounds
+     * @param rates the rate per unit of quantity for each season
+     * @param serviceCharges the fixed charge for each season
+     */
+    public SeasonalRates(int[] bounds, int[] seasons, double[] rates, double[] serviceCharges)
+    {
+        if (seasons.length == 0 || bounds.length != seasons.length + 1 || rates.length != serviceCharges.length)
+        {
+            throw new IllegalArgumentException("Every range needs bounds and a season, every season a rate and charge");
+        }
+        for (int i = 0; i < seasons.length; i++)
+        {
+            if (bounds[i + 1] <= bounds[i])
+            {
+                throw new IllegalArgumentException("Range bounds must ascend: " + Arrays.toString(bounds));
+            }
+            if (seasons[i] < 0 || seasons[i] >= rates.length)
+            {
+                throw new IllegalArgumentException("No rate for season " + seasons[i]);
+            }
+        }
+        _bounds = bounds.clone();
+        _seasons = seasons.clone();
+        _rates = rates.clone();
+        _serviceCharges = serviceCharges.clone();
+    }
+
+    /**
+     * Builds the ranges for seasons that start on the same days every year,
+     * for the given years. Season i starts on seasonStarts[i], which must be
+     * in calendar order; days before the first start of a year belong to the
+     * last season of the year before.
+     */
+    public static SeasonalRates yearly(int fromYear, int toYear, MonthDay[] seasonStarts,
+            double[] rates, double[] serviceCharges)
+    {
+        final int years = toYear - fromYear + 1;
+        final int[] bounds = new int[years * seasonStarts.length + 2];
+        final int[] seasons = new int[bounds.length - 1];
+        int range = 0;
+        bounds[range] = (int) LocalDate.of(fromYear, 1, 1).toEpochDay();
+        seasons[range] = seasonStarts.length - 1;
+        for (int year = fromYear; year <= toYear; year++)
+        {
+            for (int season = 0; season < seasonStarts.length; season++)
+            {
+                final int start = (int) seasonStarts[season].atYear(year).toEpochDay();
+                if (start == bounds[range])
+                {
+                    // a season starting on 1 January replaces the carried-over one
+                    seasons[range] = season;
+                    continue;
+                }
+                bounds[++range] = start;
+                seasons[range] = season;
+            }
+        }
+        bounds[++range] = (int) LocalDate.of(toYear + 1, 1, 1).toEpochDay();
+        return new SeasonalRates(Arrays.copyOf(bounds, range + 1), Arrays.copyOf(seasons, range),
+                rates, serviceCharges);
+    }
+
+    public int seasonOf(int epochDay)
+    {
+        return _seasons[rangeOf(epochDay)];
+    }
+
+    public double charge(int epochDay, int quantity)
+    {
+        final int season = seasonOf(epochDay);
+        return quantity * _rates[season] + _serviceCharges[season];
+    }
+
+    /**
+     * Writes the season of each date into result, which must be at least as
+     * long as the dates.
+     */
+    public void classify(int[] epochDays, int[] result)
+    {
+        int range = 0;
+        for (int i = 0; i < epochDays.length; i++)
+        {
+            range = advance(range, epochDays[i]);
+            result[i] = _seasons[range];
+        }
+    }
+
+    /**
+     * Writes the charge for each date and quantity into result, which must be
+     * at least as long as the dates.
+     */
+    public void charge(int[] epochDays, int[] quantities, double[] result)
+    {
+        if (quantities.length != epochDays.length)
+        {
+            throw new IllegalArgumentException(epochDays.length + " dates for " + quantities.length + " quantities");
+        }
+        int range = 0;
+        for (int i = 0; i < epochDays.length; i++)
+        {
+            range = advance(range, epochDays[i]);
+            final int season = _seasons[range];
+            result[i] = quantities[i] * _rates[season] + _serviceCharges[season];
+        }
+    }
+
+    public double totalCharge(int[] epochDays, int[] quantities)
+    {
+        if (quantities.length != epochDays.length)
+        {
+            throw new IllegalArgumentException(epochDays.length + " dates for " + quantities.length + " quantities");
+        }
+        double result = 0;
+        int range = 0;
+        for (int i = 0; i < epochDays.length; i++)
+        {
+            range = advance(range, epochDays[i]);
+            final int season = _seasons[range];
+            result += quantities[i] * _rates[season] + _serviceCharges[season];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the range holding the day, moving forward from the given range
+     * when the day is at or after its start.
+     */
+    private int advance(int range, int epochDay)
+    {
+        if (epochDay < _bounds[range])
+        {
+            return rangeOf(epochDay);
+        }
+        if (epochDay >= _bounds[_seasons.length])
+        {
+            throw noSeason(epochDay);
+        }
+        while (_bounds[range + 1] <= epochDay)
+        {
+            range++;
+        }
+        return range;
+    }
+
+    private int rangeOf(int epochDay)
+    {
+        if (epochDay < _bounds[0] || epochDay >= _bounds[_seasons.length])
+        {
+            throw noSeason(epochDay);
+        }
+        int low = 0;
+        int high = _seasons.length - 1;
+        while (low < high)
+        {
+            final int middle = (low + high + 1) >>> 1;
+            if (_bounds[middle] <= epochDay)
+            {
+                low = middle;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private static IllegalArgumentException noSeason(int epochDay)
+    {
+        return new IllegalArgumentException("No season for day " + epochDay);
+    }
+}
@@ -0,0 +1,82 @@
+// WatchlistScreener.java - Screens batches of people against a watchlist
+
+package com.refactoring.stategies.D_SimplifyingConditionalExpressions;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * The checkSecurity of {@link D1003_Remove_Control_Flag}, with the hard-coded
+ * "Don" and "John" replaced by a watchlist.
+ *
+ * Most visitors are not on the watchlist, so each name is first checked
+ * against a Bloom filter that fits in cache, and only names it lets through
+ * are checked against the exact set. Large batches are screened in parallel
+ * chunks. An alert is sent for every watchlisted person found, not just the
+ * first, and alerts are handed to an executor so screening never waits for
+ * delivery. A failed delivery is left to the executor's own failure handling,
+ * such as the uncaught exception handler of its threads, rather than being
+ * dropped.
+ */
+public class WatchlistScreener
+{
+    private static final int CHUNK_SIZE = 1 << 14;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final BloomFilter _filter;
+    private final Set<String> _watchlist;
+    private final Consumer<String> _sendAlert;
+    private final Executor _alertExecutor;
+
+    public WatchlistScreener(Collection<String> watchlist, Consumer<String> sendAlert, Executor alertExecutor)
+    {
+        _watchlist = new HashSet<String>(watchlist);
+        _filter = new BloomFilter(_watchlist, FALSE_POSITIVE_RATE);
+        _sendAlert = sendAlert;
+        _alertExecutor = alertExecutor;
+    }
+
+    /**
+     * Screens the people and returns how many were on the watchlist; the
+     * alerts for them may still be in flight when this returns.
+     */
+    public long checkSecurity(String[] people)
+    {
+        if (people.length <= CHUNK_SIZE)
+        {
+            return screen(people, 0, people.length);
+        }
+        final LongAdder result = new LongAdder();
+        final int chunks = (people.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final int start = chunk * CHUNK_SIZE;
+            result.add(screen(people, start, Math.min(start + CHUNK_SIZE, people.length)));
+        });
+        return result.sum();
+    }
+
+    public boolean isWatched(String person)
+    {
+        return _filter.mightContain(person) && _watchlist.contains(person);
+    }
+
+    private long screen(String[] people, int from, int to)
+    {
+        long result = 0;
+        for (int i = from; i < to; i++)
+        {
+            if (isWatched(people[i]))
+            {
+                final String person = people[i];
+                _alertExecutor.execute(() -> _sendAlert.accept(person));
+                result++;
+            }
+        }
+        return result;
+    }
+}
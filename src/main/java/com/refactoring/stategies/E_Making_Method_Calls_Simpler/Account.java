@@ -0,0 +1,140 @@
+// Account.java - Ledger of dated entries answering range flow queries by binary search
+
+package com.refactoring.stategies.E_Making_Method_Calls_Simpler;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The account of {@link E1008_Introduce_Parameter_Object}, without the Vector
+ * of Entry objects.
+ *
+ * Entries are kept sorted by charge date in primitive arrays, alongside the
+ * running total of their values, so the flow over a range is the difference
+ * of two running totals found by binary search. Entries added in date order
+ * are appended; an entry dated earlier than the last one is inserted in
+ * place, which costs a shift of the later entries.
+ */
+public class Account
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] _dates = new long[INITIAL_CAPACITY];
+    // _totals[i] is the sum of the values of the first i entries
+    private double[] _totals = new double[INITIAL_CAPACITY + 1];
+    private int _size;
+
+    public void addEntry(double value, Date chargeDate)
+    {
+        final long date = chargeDate.getTime();
+        if (_size == _dates.length)
+        {
+            _dates = Arrays.copyOf(_dates, _size * 2);
+            _totals = Arrays.copyOf(_totals, _size * 2 + 1);
+        }
+        if (_size == 0 || date >= _dates[_size - 1])
+        {
+            _dates[_size] = date;
+            _totals[_size + 1] = _totals[_size] + value;
+            _size++;
+            return;
+        }
+
+        final int index = upperBound(date, 0);
+        System.arraycopy(_dates, index, _dates, index + 1, _size - index);
+        System.arraycopy(_totals, index + 1, _totals, index + 2, _size - index);
+        _dates[index] = date;
+        _totals[index + 1] = _totals[index] + value;
+        _size++;
+        for (int i = index + 2; i <= _size; i++)
+        {
+            _totals[i] += value;
+        }
+    }
+
+    public int getEntryCount()
+    {
+        return _size;
+    }
+
+    public double getFlowBetween(DateRange range)
+    {
+        final long start = range.getStartMillis();
+        final long end = range.getEndMillis();
+        return _totals[upperBound(end, 0)] - _totals[lowerBound(start, 0)];
+    }
+
+    /**
+     * Returns the flow for each range, in the order given. When the ranges are
+     * sorted, each search starts where the one for the previous range ended,
+     * so the whole batch is one forward pass over the index; unsorted ranges
+     * give the same results, only more slowly.
+     */
+    public double[] getFlowsBetween(List<DateRange> ranges)
+    {
+        final double[] result = new double[ranges.size()];
+        long previousStart = Long.MIN_VALUE;
+        long previousEnd = Long.MIN_VALUE;
+        int low = 0;
+        int high = 0;
+        for (int i = 0; i < result.length; i++)
+        {
+            final DateRange each = ranges.get(i);
+            final long start = each.getStartMillis();
+            final long end = each.getEndMillis();
+            low = lowerBound(start, start >= previousStart ? low : 0);
+            high = upperBound(end, end >= previousEnd ? high : 0);
+            previousStart = start;
+            previousEnd = end;
+            result[i] = _totals[high] - _totals[low];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the first entry dated on or after the given time,
+     * searching from the given index on.
+     */
+    private int lowerBound(long date, int from)
+    {
+        int low = from;
+        int high = _size;
+        while (low < high)
+        {
+            final int middle = (low + high) >>> 1;
+            if (_dates[middle] < date)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first entry dated after the given time,
+     * searching from the given index on.
+     */
+    private int upperBound(long date, int from)
+    {
+        int low = from;
+        int high = _size;
+        while (low < high)
+        {
+            final int middle = (low + high) >>> 1;
+            if (_dates[middle] <= date)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,53 @@
+// DateRange.java - Immutable inclusive range of dates
+
+package com.refactoring.stategies.E_Making_Method_Calls_Simpler;
+
+import java.util.Date;
+
+/**
+ * The parameter object introduced in {@link E1008_Introduce_Parameter_Object}.
+ * Both ends are included in the range, and the end may not come before the
+ * start.
+ */
+public class DateRange
+{
+    private final Date _start;
+    private final Date _end;
+
+    public DateRange(Date start, Date end)
+    {
+        if (end.before(start))
+        {
+            throw new IllegalArgumentException("Range ends at " + end + " before it starts at " + start);
+        }
+        _start = new Date(start.getTime());
+        _end = new Date(end.getTime());
+    }
+
+    public Date getStart()
+    {
+        return new Date(_start.getTime());
+    }
+
+    public Date getEnd()
+    {
+        return new Date(_end.getTime());
+    }
+
+    long getStartMillis()
+    {
+        return _start.getTime();
+    }
+
+    long getEndMillis()
+    {
+        return _end.getTime();
+    }
+
+    public boolean includes(Date arg)
+    {
+        return (arg.equals(_start) ||
+                arg.equals(_end) ||
+                (arg.after(_start) && arg.before(_end)));
+    }
+}
@@ -0,0 +1,56 @@
+// Reading.java - One timestamped value from a sensor site
+
+package com.refactoring.stategies.E_Making_Method_Calls_Simpler;
+
+/**
+ * The reading that {@link E1102_Encapsulate_Downcast} has to cast out of
+ * Site's Vector. A site no longer keeps these objects; they are made on the
+ * way out of its {@link ReadingStore}.
+ */
+public final class Reading
+{
+    private final long _time;
+    private final double _value;
+
+    public Reading(long time, double value)
+    {
+        _time = time;
+        _value = value;
+    }
+
+    /**
+     * The time of the reading in milliseconds since the epoch.
+     */
+    public long getTime()
+    {
+        return _time;
+    }
+
+    public double getValue()
+    {
+        return _value;
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (!(other instanceof Reading))
+        {
+            return false;
+        }
+        final Reading that = (Reading) other;
+        return _time == that._time && Double.compare(_value, that._value) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(_time) * 31 + Double.hashCode(_value);
+    }
+
+    @Override
+    public String toString()
+    {
+        return _time + "=" + _value;
+    }
+}
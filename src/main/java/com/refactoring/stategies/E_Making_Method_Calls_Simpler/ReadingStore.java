@@ -0,0 +1,331 @@
+// ReadingStore.java - Time-ordered readings in primitive columns, with rollups
+
+package com.refactoring.stategies.E_Making_Method_Calls_Simpler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The readings of a {@link Site}, replacing the Vector of Object in
+ * {@link E1102_Encapsulate_Downcast}.
+ *
+ * Readings must be added in time order, and are kept as a long[] of times and
+ * a double[] of values, so the last reading is the last slot and a range of
+ * times is found by binary search. Each reading also updates the min, max and
+ * sum of the rollup interval it falls in; since readings arrive in order only
+ * the latest interval is ever open.
+ *
+ * Given a retention the columns are rings of that size: once full, each new
+ * reading overwrites the oldest. The rollups are a ring of the same size, and
+ * as there are never more intervals than readings they always cover at least
+ * the readings still held. Without a retention both grow as needed.
+ *
+ * Methods are synchronized so a site can be read while readings arrive.
+ */
+public class ReadingStore
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long _rollupInterval;
+    private final boolean _bounded;
+
+    private long[] _times;
+    private double[] _values;
+    private int _head;
+    private int _size;
+
+    private long[] _rollupStarts;
+    private double[] _mins;
+    private double[] _maxs;
+    private double[] _sums;
+    private int[] _counts;
+    private int _rollupHead;
+    private int _rollupSize;
+
+    public ReadingStore(long rollupInterval)
+    {
+        this(rollupInterval, INITIAL_CAPACITY, false);
+    }
+
+    public ReadingStore(long rollupInterval, int retention)
+    {
+        this(rollupInterval, retention, true);
+        if (retention <= 0)
+        {
+            throw new IllegalArgumentException("Retention must be positive: " + retention);
+        }
+    }
+
+    private ReadingStore(long rollupInterval, int capacity, boolean bounded)
+    {
+        if (rollupInterval <= 0)
+        {
+            throw new IllegalArgumentException("Rollup interval must be positive: " + rollupInterval);
+        }
+        _rollupInterval = rollupInterval;
+        _bounded = bounded;
+        _times = new long[Math.max(capacity, 1)];
+        _values = new double[_times.length];
+        _rollupStarts = new long[_times.length];
+        _mins = new double[_times.length];
+        _maxs = new double[_times.length];
+        _sums = new double[_times.length];
+        _counts = new int[_times.length];
+    }
+
+    /**
+     * Adds a reading, which must be no earlier than the last one.
+     */
+    public synchronized void add(long time, double value)
+    {
+        if (_size > 0 && time < _times[slot(_size - 1)])
+        {
+            throw new IllegalArgumentException("Reading at " + time + " is before the last at "
+                    + _times[slot(_size - 1)]);
+        }
+        if (_size == _times.length)
+        {
+            if (_bounded)
+            {
+                _head = slot(1);
+                _size--;
+            }
+            else
+            {
+                growReadings();
+            }
+        }
+        final int slot = slot(_size++);
+        _times[slot] = time;
+        _values[slot] = value;
+        addToRollup(time, value);
+    }
+
+    public synchronized int size()
+    {
+        return _size;
+    }
+
+    /**
+     * Returns the latest reading, or null if there are none.
+     */
+    public synchronized Reading last()
+    {
+        if (_size == 0)
+        {
+            return null;
+        }
+        final int slot = slot(_size - 1);
+        return new Reading(_times[slot], _values[slot]);
+    }
+
+    /**
+     * Returns the readings from the from time up to but not including the to
+     * time, oldest first.
+     */
+    public synchronized List<Reading> between(long from, long to)
+    {
+        final int end = firstAtOrAfter(to);
+        final List<Reading> result = new ArrayList<Reading>();
+        for (int i = firstAtOrAfter(from); i < end; i++)
+        {
+            final int slot = slot(i);
+            result.add(new Reading(_times[slot], _values[slot]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of readings from the from time up to but not
+     * including the to time.
+     */
+    public synchronized int countBetween(long from, long to)
+    {
+        return Math.max(0, firstAtOrAfter(to) - firstAtOrAfter(from));
+    }
+
+    public long getRollupInterval()
+    {
+        return _rollupInterval;
+    }
+
+    /**
+     * Returns the rollups of the intervals that overlap the from time up to
+     * but not including the to time, oldest first. Intervals with no
+     * readings are left out.
+     */
+    public synchronized List<Rollup> rollupsBetween(long from, long to)
+    {
+        final List<Rollup> result = new ArrayList<Rollup>();
+        final long first = intervalStart(from);
+        int low = 0;
+        int high = _rollupSize;
+        while (low < high)
+        {
+            final int middle = (low + high) >>> 1;
+            if (_rollupStarts[rollupSlot(middle)] < first)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        for (int i = low; i < _rollupSize; i++)
+        {
+            final int slot = rollupSlot(i);
+            if (_rollupStarts[slot] >= to)
+            {
+                break;
+            }
+            result.add(new Rollup(_rollupStarts[slot], _mins[slot], _maxs[slot], _sums[slot], _counts[slot]));
+        }
+        return result;
+    }
+
+    private void addToRollup(long time, double value)
+    {
+        final long start = intervalStart(time);
+        if (_rollupSize > 0)
+        {
+            final int slot = rollupSlot(_rollupSize - 1);
+            if (_rollupStarts[slot] == start)
+            {
+                _mins[slot] = Math.min(_mins[slot], value);
+                _maxs[slot] = Math.max(_maxs[slot], value);
+                _sums[slot] += value;
+                _counts[slot]++;
+                return;
+            }
+        }
+        if (_rollupSize == _rollupStarts.length)
+        {
+            if (_bounded)
+            {
+                _rollupHead = rollupSlot(1);
+                _rollupSize--;
+            }
+            else
+            {
+                growRollups();
+            }
+        }
+        final int slot = rollupSlot(_rollupSize++);
+        _rollupStarts[slot] = start;
+        _mins[slot] = value;
+        _maxs[slot] = value;
+        _sums[slot] = value;
+        _counts[slot] = 1;
+    }
+
+    private long intervalStart(long time)
+    {
+        return Math.floorDiv(time, _rollupInterval) * _rollupInterval;
+    }
+
+    /**
+     * Returns the position of the first reading at or after the time, or the
+     * size if there is none.
+     */
+    private int firstAtOrAfter(long time)
+    {
+        int low = 0;
+        int high = _size;
+        while (low < high)
+        {
+            final int middle = (low + high) >>> 1;
+            if (_times[slot(middle)] < time)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int slot(int index)
+    {
+        final int slot = _head + index;
+        return slot < _times.length ? slot : slot - _times.length;
+    }
+
+    private int rollupSlot(int index)
+    {
+        final int slot = _rollupHead + index;
+        return slot < _rollupStarts.length ? slot : slot - _rollupStarts.length;
+    }
+
+    // only unbounded stores grow, and they never wrap, so head stays 0
+    private void growReadings()
+    {
+        _times = Arrays.copyOf(_times, _times.length * 2);
+        _values = Arrays.copyOf(_values, _times.length);
+    }
+
+    private void growRollups()
+    {
+        final int length = _rollupStarts.length * 2;
+        _rollupStarts = Arrays.copyOf(_rollupStarts, length);
+        _mins = Arrays.copyOf(_mins, length);
+        _maxs = Arrays.copyOf(_maxs, length);
+        _sums = Arrays.copyOf(_sums, length);
+        _counts = Arrays.copyOf(_counts, length);
+    }
+
+    /**
+     * The readings of one rollup interval.
+     */
+    public static final class Rollup
+    {
+        private final long _start;
+        private final double _min;
+        private final double _max;
+        private final double _sum;
+        private final int _count;
+
+        private Rollup(long start, double min, double max, double sum, int count)
+        {
+            _start = start;
+            _min = min;
+            _max = max;
+            _sum = sum;
+            _count = count;
+        }
+
+        public long getStart()
+        {
+            return _start;
+        }
+
+        public double getMin()
+        {
+            return _min;
+        }
+
+        public double getMax()
+        {
+            return _max;
+        }
+
+        public double getAverage()
+        {
+            return _sum / _count;
+        }
+
+        public int getCount()
+        {
+            return _count;
+        }
+
+        @Override
+        public String toString()
+        {
+            return _start + "[min=" + _min + ", max=" + _max + ", avg=" + getAverage() + ", n=" + _count + "]";
+        }
+    }
+}
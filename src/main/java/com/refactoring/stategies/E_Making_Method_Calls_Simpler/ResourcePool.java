@@ -0,0 +1,603 @@
+// ResourcePool.java - Bounded pool of reusable resources with a lock-free fast path
+
+package com.refactoring.stategies.E_Making_Method_Calls_Simpler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The ResourcePool of {@link E1104_Replace_Exception_with_Test}, made fit for
+ * concurrent use.
+ *
+ * The two synchronized stacks are replaced by a lock-free stack of available
+ * resources and a per-thread slot holding the resource the thread released
+ * last, so a thread that borrows and releases in a loop keeps getting the same
+ * resource without touching shared state. New resources are only created
+ * while the pool is below its maximum size; after that borrowers wait, up to a
+ * timeout, for a release. Only that waiting takes a lock, and resources are
+ * never created while it is held.
+ *
+ * The pool is created holding its minimum number of resources, so the first
+ * borrowers do not pay for creation. With maintenance started, resources idle
+ * for longer than the idle timeout are destroyed down to that minimum, and
+ * resources held past the leak threshold are reported. Capturing a stack trace
+ * on every borrow is expensive, so only a sample of borrows record where they
+ * came from.
+ *
+ * Resources are tracked by equals/hashCode, so they should keep identity
+ * equality, as connections and similar handles do.
+ */
+public class ResourcePool<R>
+{
+    private static final int AVAILABLE = 0;
+    // claimed but not yet stamped with its borrower, so not yet a leak
+    private static final int BORROWING = 1;
+    private static final int IN_USE = 2;
+    private static final int EVICTED = 3;
+
+    private final Supplier<R> _factory;
+    private final Consumer<R> _destroyer;
+    private final int _minSize;
+    private final int _maxSize;
+
+    private final List<Entry<R>> _all = new CopyOnWriteArrayList<Entry<R>>();
+    private final ConcurrentMap<R, Entry<R>> _entries = new ConcurrentHashMap<R, Entry<R>>();
+    private final AtomicReference<Node<R>> _available = new AtomicReference<Node<R>>();
+    private final ThreadLocal<Entry<R>> _lastReleased = new ThreadLocal<Entry<R>>();
+    private final AtomicInteger _size = new AtomicInteger();
+
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _released = _lock.newCondition();
+    private final AtomicInteger _waiters = new AtomicInteger();
+
+    private final Metrics _metrics = new Metrics();
+
+    private volatile long _idleTimeoutNanos = Long.MAX_VALUE;
+    private volatile int _leakSampleEvery;
+    private volatile long _leakThresholdNanos = Long.MAX_VALUE;
+    private volatile Consumer<Throwable> _leakListener;
+    private final AtomicInteger _borrowCount = new AtomicInteger();
+
+    public ResourcePool(Supplier<R> factory, int maxSize)
+    {
+        this(factory, resource -> {}, 0, maxSize);
+    }
+
+    /**
+     * Creates a pool and fills it with minSize resources straight away.
+     *
+     * @param destroyer called on resources the pool evicts
+     */
+    public ResourcePool(Supplier<R> factory, Consumer<R> destroyer, int minSize, int maxSize)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        if (minSize < 0 || minSize > maxSize)
+        {
+            throw new IllegalArgumentException("Minimum size " + minSize + " is outside 0.." + maxSize);
+        }
+        _factory = factory;
+        _destroyer = destroyer;
+        _minSize = minSize;
+        _maxSize = maxSize;
+        warmUp();
+    }
+
+    /**
+     * Destroys available resources that have not been used for the given
+     * time, when {@link #evictIdle()} runs.
+     */
+    public void setIdleTimeout(long timeout, TimeUnit unit)
+    {
+        _idleTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Reports resources held for longer than the threshold. One in every
+     * sampleEvery borrows records its stack trace; the listener gets that
+     * trace, or a trace-less Throwable for unsampled borrows.
+     */
+    public void setLeakDetection(int sampleEvery, long threshold, TimeUnit unit, Consumer<Throwable> listener)
+    {
+        if (sampleEvery < 1)
+        {
+            throw new IllegalArgumentException("Sample rate must be positive: " + sampleEvery);
+        }
+        _leakSampleEvery = sampleEvery;
+        _leakThresholdNanos = unit.toNanos(threshold);
+        _leakListener = listener;
+    }
+
+    /**
+     * Runs idle eviction and leak detection on the scheduler every period.
+     * A scheduled task that throws is never run again, so failures are
+     * counted in the metrics instead of being thrown.
+     */
+    public ScheduledFuture<?> startMaintenance(ScheduledExecutorService scheduler, long period, TimeUnit unit)
+    {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try
+            {
+                evictIdle();
+                reportLeaks();
+            }
+            catch (RuntimeException e)
+            {
+                _metrics._callbackFailures.increment();
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Hands out an available resource, creating one if none is available and
+     * the pool is not full, otherwise waiting for one to be released.
+     *
+     * @throws TimeoutException if no resource became available in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public R getResource(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException
+    {
+        final long start = System.nanoTime();
+        Entry<R> result = tryBorrow();
+        if (result == null)
+        {
+            result = awaitRelease(start + unit.toNanos(timeout));
+        }
+        _metrics.recordBorrow(System.nanoTime() - start);
+        recordBorrower(result, start);
+        result._state.set(IN_USE);
+        return result._resource;
+    }
+
+    public void releaseResource(R resource)
+    {
+        final Entry<R> entry = _entries.get(resource);
+        if (entry == null)
+        {
+            throw new IllegalArgumentException("Resource was not borrowed from this pool: " + resource);
+        }
+        entry._lastUsed = System.nanoTime();
+        if (!entry._state.compareAndSet(IN_USE, AVAILABLE))
+        {
+            throw new IllegalArgumentException("Resource is not borrowed: " + resource);
+        }
+        if (_waiters.get() == 0 && _lastReleased.get() == null)
+        {
+            _lastReleased.set(entry);
+            return;
+        }
+        pushAndSignal(entry);
+    }
+
+    public int getSize()
+    {
+        return _size.get();
+    }
+
+    public int getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    public Metrics getMetrics()
+    {
+        return _metrics;
+    }
+
+    /**
+     * Destroys resources that have been available for longer than the idle
+     * timeout, never taking the pool below its minimum size. A destroyer that
+     * throws is counted in the metrics and does not stop the others.
+     */
+    public void evictIdle()
+    {
+        final long now = System.nanoTime();
+        for (Entry<R> each : _all)
+        {
+            // claim the entry before giving up its place in the size, so no
+            // borrower can hold it while another thread creates in its place
+            if (now - each._lastUsed <= _idleTimeoutNanos
+                    || !each._state.compareAndSet(AVAILABLE, EVICTED))
+            {
+                continue;
+            }
+            if (!reserveEviction())
+            {
+                // at the minimum: hand the entry back, onto the stack since a
+                // pop may have dropped its node while it was claimed
+                each._state.set(AVAILABLE);
+                pushAndSignal(each);
+                return;
+            }
+            // stale references on the stack or in thread slots fail to claim
+            // the entry and are dropped
+            _all.remove(each);
+            _entries.remove(each._resource);
+            _metrics._evictions.increment();
+            try
+            {
+                _destroyer.accept(each._resource);
+            }
+            catch (RuntimeException e)
+            {
+                _metrics._callbackFailures.increment();
+            }
+        }
+    }
+
+    /**
+     * Passes each resource held for longer than the leak threshold to the leak
+     * listener, once per borrow, and returns how many were found. A listener
+     * that throws is counted in the metrics and still gets the other leaks.
+     */
+    public int reportLeaks()
+    {
+        final Consumer<Throwable> listener = _leakListener;
+        if (listener == null)
+        {
+            return 0;
+        }
+        final long now = System.nanoTime();
+        final List<Throwable> leaks = new ArrayList<Throwable>();
+        for (Entry<R> each : _all)
+        {
+            if (each._state.get() == IN_USE
+                    && !each._leakReported
+                    && now - each._borrowedAt > _leakThresholdNanos)
+            {
+                each._leakReported = true;
+                final Throwable trace = each._borrowTrace;
+                leaks.add(trace != null ? trace
+                        : new Leak("Resource " + each._resource + " held past leak threshold", false));
+            }
+        }
+        for (Throwable each : leaks)
+        {
+            _metrics._leaks.increment();
+            try
+            {
+                listener.accept(each);
+            }
+            catch (RuntimeException e)
+            {
+                _metrics._callbackFailures.increment();
+            }
+        }
+        return leaks.size();
+    }
+
+    private void warmUp()
+    {
+        for (int i = 0; i < _minSize; i++)
+        {
+            final Entry<R> entry = tryCreate();
+            entry._lastUsed = System.nanoTime();
+            entry._state.set(AVAILABLE);
+            push(entry);
+        }
+    }
+
+    private boolean reserveEviction()
+    {
+        int size;
+        do
+        {
+            size = _size.get();
+            if (size <= _minSize)
+            {
+                return false;
+            }
+        }
+        while (!_size.compareAndSet(size, size - 1));
+        return true;
+    }
+
+    private void recordBorrower(Entry<R> entry, long borrowedAt)
+    {
+        entry._borrowedAt = borrowedAt;
+        entry._leakReported = false;
+        final int sampleEvery = _leakSampleEvery;
+        entry._borrowTrace = sampleEvery > 0 && _borrowCount.incrementAndGet() % sampleEvery == 0
+                ? new Leak("Resource " + entry._resource + " held past leak threshold", true)
+                : null;
+    }
+
+    private Entry<R> tryBorrow()
+    {
+        final Entry<R> cached = _lastReleased.get();
+        if (cached != null)
+        {
+            _lastReleased.remove();
+            if (cached._state.compareAndSet(AVAILABLE, BORROWING))
+            {
+                return cached;
+            }
+        }
+        final Entry<R> popped = pop();
+        if (popped != null)
+        {
+            return popped;
+        }
+        return tryCreate();
+    }
+
+    private Entry<R> awaitRelease(long deadline) throws TimeoutException, InterruptedException
+    {
+        final long waitStart = System.nanoTime();
+        // while anyone waits, releases go on the shared stack and signal
+        _waiters.incrementAndGet();
+        try
+        {
+            while (true)
+            {
+                // the factory may be slow, so creating happens outside the lock
+                Entry<R> result = claimAvailable();
+                if (result == null)
+                {
+                    result = tryCreate();
+                }
+                if (result != null)
+                {
+                    return result;
+                }
+                _lock.lock();
+                try
+                {
+                    // a release since the check above either signals after
+                    // this thread starts waiting or is found here
+                    result = claimAvailable();
+                    if (result != null)
+                    {
+                        return result;
+                    }
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0)
+                    {
+                        _metrics._timeouts.increment();
+                        throw new TimeoutException("No resource available in pool of " + _maxSize);
+                    }
+                    _released.awaitNanos(remaining);
+                }
+                finally
+                {
+                    _lock.unlock();
+                }
+            }
+        }
+        finally
+        {
+            _waiters.decrementAndGet();
+            _metrics._waitNanos.add(System.nanoTime() - waitStart);
+        }
+    }
+
+    /**
+     * Claims a resource from the stack or, failing that, from any thread's
+     * slot; resources parked in other threads' slots are only found by
+     * scanning every entry.
+     */
+    private Entry<R> claimAvailable()
+    {
+        final Entry<R> result = pop();
+        return result != null ? result : steal();
+    }
+
+    private Entry<R> tryCreate()
+    {
+        int size;
+        do
+        {
+            size = _size.get();
+            if (size >= _maxSize)
+            {
+                return null;
+            }
+        }
+        while (!_size.compareAndSet(size, size + 1));
+
+        final R resource;
+        try
+        {
+            resource = _factory.get();
+        }
+        catch (RuntimeException e)
+        {
+            _size.decrementAndGet();
+            throw e;
+        }
+        final Entry<R> result = new Entry<R>(resource, BORROWING);
+        _entries.put(resource, result);
+        _all.add(result);
+        _metrics._creations.increment();
+        return result;
+    }
+
+    private Entry<R> steal()
+    {
+        for (Entry<R> each : _all)
+        {
+            if (each._state.compareAndSet(AVAILABLE, BORROWING))
+            {
+                return each;
+            }
+        }
+        return null;
+    }
+
+    private void pushAndSignal(Entry<R> entry)
+    {
+        push(entry);
+        if (_waiters.get() > 0)
+        {
+            _lock.lock();
+            try
+            {
+                _released.signal();
+            }
+            finally
+            {
+                _lock.unlock();
+            }
+        }
+    }
+
+    private void push(Entry<R> entry)
+    {
+        final Node<R> node = new Node<R>(entry);
+        do
+        {
+            node._next = _available.get();
+        }
+        while (!_available.compareAndSet(node._next, node));
+    }
+
+    /**
+     * Pops entries until one can be claimed. An entry on the stack may already
+     * have been claimed by a waiter scanning all entries; such stale nodes are
+     * dropped.
+     */
+    private Entry<R> pop()
+    {
+        while (true)
+        {
+            final Node<R> top = _available.get();
+            if (top == null)
+            {
+                return null;
+            }
+            if (_available.compareAndSet(top, top._next)
+                    && top._entry._state.compareAndSet(AVAILABLE, BORROWING))
+            {
+                return top._entry;
+            }
+        }
+    }
+
+    private static class Entry<R>
+    {
+        private final R _resource;
+        private final AtomicInteger _state;
+        private volatile long _lastUsed;
+        private volatile long _borrowedAt;
+        private volatile Throwable _borrowTrace;
+        private volatile boolean _leakReported;
+
+        Entry(R resource, int state)
+        {
+            _resource = resource;
+            _state = new AtomicInteger(state);
+        }
+    }
+
+    /**
+     * What the leak listener is given: where the resource was borrowed from if
+     * that borrow was sampled, otherwise just which resource it is.
+     */
+    public static class Leak extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        Leak(String message, boolean withStackTrace)
+        {
+            super(message, null, false, withStackTrace);
+        }
+    }
+
+    private static class Node<R>
+    {
+        private final Entry<R> _entry;
+        private Node<R> _next;
+
+        Node(Entry<R> entry)
+        {
+            _entry = entry;
+        }
+    }
+
+    public static class Metrics
+    {
+        private final LongAdder _borrows = new LongAdder();
+        private final LongAdder _borrowNanos = new LongAdder();
+        private final LongAccumulator _maxBorrowNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder _creations = new LongAdder();
+        private final LongAdder _waitNanos = new LongAdder();
+        private final LongAdder _timeouts = new LongAdder();
+        private final LongAdder _evictions = new LongAdder();
+        private final LongAdder _leaks = new LongAdder();
+        private final LongAdder _callbackFailures = new LongAdder();
+
+        private void recordBorrow(long nanos)
+        {
+            _borrows.increment();
+            _borrowNanos.add(nanos);
+            _maxBorrowNanos.accumulate(nanos);
+        }
+
+        public long getBorrows()
+        {
+            return _borrows.sum();
+        }
+
+        public double getAverageBorrowNanos()
+        {
+            final long borrows = _borrows.sum();
+            return borrows == 0 ? 0 : (double) _borrowNanos.sum() / borrows;
+        }
+
+        public long getMaxBorrowNanos()
+        {
+            return _maxBorrowNanos.get();
+        }
+
+        public long getCreations()
+        {
+            return _creations.sum();
+        }
+
+        public long getWaitNanos()
+        {
+            return _waitNanos.sum();
+        }
+
+        public long getTimeouts()
+        {
+            return _timeouts.sum();
+        }
+
+        public long getEvictions()
+        {
+            return _evictions.sum();
+        }
+
+        public long getLeaks()
+        {
+            return _leaks.sum();
+        }
+
+        /**
+         * Returns how many times the destroyer, the leak listener or a
+         * maintenance run threw.
+         */
+        public long getCallbackFailures()
+        {
+            return _callbackFailures.sum();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+// SalaryColumn.java - Salaries in one primitive column, raised in bulk with undo
+
+package com.refactoring.stategies.E_Making_Method_Calls_Simpler;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Salaries held in a double[] so that a raise for everyone is one parallel
+ * pass instead of a call to Employee.raise per person. As in
+ * {@link E1004_Parameterize_Method}, raising by a factor multiplies a salary
+ * by 1 + factor.
+ *
+ * A raise computes the new salaries into a fresh array and then publishes it,
+ * so readers see every salary before the raise or every salary after it,
+ * never a mix. The arrays replaced by the last few raises are kept, so a
+ * mistaken raise can be undone by publishing the old array again. A reader
+ * that needs several salaries to agree takes a {@link #snapshot()} and reads
+ * them all from it.
+ */
+public class SalaryColumn
+{
+    private final Object _writeLock = new Object();
+    private final Deque<Snapshot> _undo = new ArrayDeque<Snapshot>();
+    private final int _maxUndo;
+    private volatile Snapshot _current = new Snapshot(new double[16], 0);
+
+    public SalaryColumn(int maxUndo)
+    {
+        _maxUndo = maxUndo;
+    }
+
+    /**
+     * Adds a salary and returns the id to read it by.
+     */
+    public int add(double salary)
+    {
+        synchronized (_writeLock)
+        {
+            final Snapshot current = _current;
+            double[] salaries = current._salaries;
+            if (current._size == salaries.length)
+            {
+                salaries = Arrays.copyOf(salaries, salaries.length * 2);
+            }
+            // no snapshot reads past its own size, so the slot can be written in place
+            salaries[current._size] = salary;
+            _current = new Snapshot(salaries, current._size + 1);
+            return current._size;
+        }
+    }
+
+    public double getSalary(int id)
+    {
+        return _current.getSalary(id);
+    }
+
+    /**
+     * Returns the salaries as last published, which later adds and raises do
+     * not change.
+     */
+    public Snapshot snapshot()
+    {
+        return _current;
+    }
+
+    public int size()
+    {
+        return _current._size;
+    }
+
+    public void raise(double factor)
+    {
+        synchronized (_writeLock)
+        {
+            final Snapshot current = _current;
+            final double[] old = current._salaries;
+            final double[] raised = new double[old.length];
+            Arrays.parallelSetAll(raised, i -> old[i] * (1 + factor));
+            publishRaise(new Snapshot(raised, current._size));
+        }
+    }
+
+    /**
+     * Raises each salary by the factor at its id; factors must hold one entry
+     * per salary.
+     */
+    public void raise(double[] factors)
+    {
+        synchronized (_writeLock)
+        {
+            final Snapshot current = _current;
+            if (factors.length != current._size)
+            {
+                throw new IllegalArgumentException(factors.length + " factors for " + current._size + " salaries");
+            }
+            final double[] old = current._salaries;
+            final double[] raised = new double[old.length];
+            Arrays.parallelSetAll(raised, i -> i < factors.length ? old[i] * (1 + factors[i]) : 0);
+            publishRaise(new Snapshot(raised, current._size));
+        }
+    }
+
+    /**
+     * Puts back the salaries as they were before the last raise that has not
+     * been undone, and returns false if there is none. Salaries added since
+     * that raise are kept as they are; other changes since are lost.
+     */
+    public boolean undo()
+    {
+        synchronized (_writeLock)
+        {
+            final Snapshot previous = _undo.pollFirst();
+            if (previous == null)
+            {
+                return false;
+            }
+            final Snapshot current = _current;
+            double[] restored = previous._salaries;
+            if (current._size > previous._size)
+            {
+                restored = Arrays.copyOf(restored, current._salaries.length);
+                System.arraycopy(current._salaries, previous._size, restored, previous._size,
+                        current._size - previous._size);
+            }
+            _current = new Snapshot(restored, current._size);
+            return true;
+        }
+    }
+
+    private void publishRaise(Snapshot raised)
+    {
+        if (_maxUndo > 0)
+        {
+            if (_undo.size() == _maxUndo)
+            {
+                _undo.pollLast();
+            }
+            _undo.addFirst(_current);
+        }
+        _current = raised;
+    }
+
+    /**
+     * One published set of salaries. Adds write past the end of the array
+     * in place, but never within the size of an existing snapshot.
+     */
+    public static final class Snapshot
+    {
+        private final double[] _salaries;
+        private final int _size;
+
+        private Snapshot(double[] salaries, int size)
+        {
+            _salaries = salaries;
+            _size = size;
+        }
+
+        public double getSalary(int id)
+        {
+            if (id < 0 || id >= _size)
+            {
+                throw new IndexOutOfBoundsException("No salary " + id);
+            }
+            return _salaries[id];
+        }
+
+        public int size()
+        {
+            return _size;
+        }
+
+        public double total()
+        {
+            double result = 0;
+            for (int i = 0; i < _size; i++)
+            {
+                result += _salaries[i];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+// Site.java - A sensor site and its readings
+
+package com.refactoring.stategies.E_Making_Method_Calls_Simpler;
+
+import java.util.List;
+
+/**
+ * The Site of {@link E1102_Encapsulate_Downcast}, with its readings in a
+ * typed {@link ReadingStore} instead of a Vector of Object, so lastReading
+ * needs no downcast and no search.
+ */
+public class Site
+{
+    private final String _name;
+    private final ReadingStore _readings;
+
+    /**
+     * A site that keeps every reading, rolled up by the given interval in
+     * milliseconds.
+     */
+    public Site(String name, long rollupInterval)
+    {
+        this(name, new ReadingStore(rollupInterval));
+    }
+
+    /**
+     * A site that keeps only its latest readings, and as many rollups.
+     */
+    public Site(String name, long rollupInterval, int retention)
+    {
+        this(name, new ReadingStore(rollupInterval, retention));
+    }
+
+    private Site(String name, ReadingStore readings)
+    {
+        _name = name;
+        _readings = readings;
+    }
+
+    public String getName()
+    {
+        return _name;
+    }
+
+    public void addReading(Reading reading)
+    {
+        _readings.add(reading.getTime(), reading.getValue());
+    }
+
+    public void addReading(long time, double value)
+    {
+        _readings.add(time, value);
+    }
+
+    /**
+     * Returns the latest reading, or null if there are none.
+     */
+    public Reading lastReading()
+    {
+        return _readings.last();
+    }
+
+    public List<Reading> readingsBetween(long from, long to)
+    {
+        return _readings.between(from, to);
+    }
+
+    public List<ReadingStore.Rollup> rollupsBetween(long from, long to)
+    {
+        return _readings.rollupsBetween(from, to);
+    }
+
+    public ReadingStore readings()
+    {
+        return _readings;
+    }
+}
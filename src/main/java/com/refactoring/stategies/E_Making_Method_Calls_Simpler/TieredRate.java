@@ -0,0 +1,105 @@
+// TieredRate.java - Usage charge over rate tiers, evaluated by table lookup
+
+package com.refactoring.stategies.E_Making_Method_Calls_Simpler;
+
+import java.util.Arrays;
+
+/**
+ * The tiered charge of baseCharge in {@link E1004_Parameterize_Method}, with
+ * the usageInRange calls replaced by a table.
+ *
+ * The charge for all usage below each tier boundary is worked out once, so
+ * the charge for a usage is the total up to its tier plus the usage within
+ * the tier at that tier's rate. Finding the tier is a binary search, and
+ * nothing is allocated; callers wanting Dollars wrap the result themselves.
+ */
+public class TieredRate
+{
+    /**
+     * 0 to 100 at 0.03, 100 to 200 at 0.05 and above 200 at 0.07.
+     */
+    public static final TieredRate BASE_CHARGE = new TieredRate(new long[] {0, 100, 200},
+            new double[] {0.03, 0.05, 0.07});
+
+    private final long[] _starts;
+    private final double[] _rates;
+    // _chargeAtStart[i] is the charge for a usage of exactly _starts[i]
+    private final double[] _chargeAtStart;
+
+    /**
+     * @param starts the usage each tier starts at, ascending from zero
+     * @param rates the rate per unit of usage within each tier
+     */
+    public TieredRate(long[] starts, double[] rates)
+    {
+        if (starts.length == 0 || starts.length != rates.length || starts[0] != 0)
+        {
+            throw new IllegalArgumentException("Tiers must start at 0 and have one rate each");
+        }
+        _starts = starts.clone();
+        _rates = rates.clone();
+        _chargeAtStart = new double[starts.length];
+        for (int i = 1; i < starts.length; i++)
+        {
+            if (starts[i] <= starts[i - 1])
+            {
+                throw new IllegalArgumentException("Tier starts must ascend: " + Arrays.toString(starts));
+            }
+            _chargeAtStart[i] = _chargeAtStart[i - 1] + (starts[i] - starts[i - 1]) * rates[i - 1];
+        }
+    }
+
+    public double charge(long usage)
+    {
+        if (usage <= 0)
+        {
+            return 0;
+        }
+        final int tier = tierOf(usage);
+        return _chargeAtStart[tier] + (usage - _starts[tier]) * _rates[tier];
+    }
+
+    /**
+     * Charges each usage into the matching index of result, which must be at
+     * least as long as usages.
+     */
+    public void charge(long[] usages, double[] result)
+    {
+        for (int i = 0; i < usages.length; i++)
+        {
+            result[i] = charge(usages[i]);
+        }
+    }
+
+    public double totalCharge(long[] usages)
+    {
+        double result = 0;
+        for (long each : usages)
+        {
+            result += charge(each);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the last tier starting at or below the usage.
+     */
+    private int tierOf(long usage)
+    {
+        int low = 0;
+        int high = _starts.length - 1;
+        while (low < high)
+        {
+            final int middle = (low + high + 1) >>> 1;
+            if (_starts[middle] <= usage)
+            {
+                low = middle;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,135 @@
+// Department.java - Department as a composite party with a cached total cost
+
+package com.refactoring.stategies.F_Dealing_with_Generalization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The department of {@link F1006_Extract_Superclass}, made a composite of
+ * parties.
+ *
+ * Instead of summing its staff on every call, a department keeps its total
+ * annual cost and has it adjusted as staff are added or removed and as costs
+ * change below it, so asking any department for its cost is constant time.
+ * {@link #recomputeAnnualCost()} rebuilds every total in the subtree from the
+ * employees up, in parallel.
+ *
+ * Changes to the tree are not synchronized; make them from one thread.
+ */
+public class Department extends Party
+{
+    private static final int SEQUENTIAL_THRESHOLD = 64;
+
+    private final List<Party> _staff = new ArrayList<Party>();
+    private long _annualCost;
+
+    public Department(String name)
+    {
+        super(name);
+    }
+
+    @Override
+    public long getAnnualCost()
+    {
+        return _annualCost;
+    }
+
+    public int getHeadCount()
+    {
+        return _staff.size();
+    }
+
+    public List<Party> getStaff()
+    {
+        return Collections.unmodifiableList(_staff);
+    }
+
+    public void addStaff(Party arg)
+    {
+        for (Department each = this; each != null; each = each.getParent())
+        {
+            if (each == arg)
+            {
+                throw new IllegalArgumentException(arg.getName() + " would contain itself");
+            }
+        }
+        arg.setParent(this);
+        _staff.add(arg);
+        _annualCost += arg.getAnnualCost();
+        propagateCostChange(arg.getAnnualCost());
+    }
+
+    public void removeStaff(Party arg)
+    {
+        if (_staff.remove(arg))
+        {
+            arg.setParent(null);
+            _annualCost -= arg.getAnnualCost();
+            propagateCostChange(-arg.getAnnualCost());
+        }
+    }
+
+    /**
+     * Recomputes the cached totals of this department and every department
+     * below it from the employees' costs, splitting the work over the
+     * fork/join pool, and returns the new total.
+     */
+    public long recomputeAnnualCost()
+    {
+        final long previous = _annualCost;
+        final long result = ForkJoinPool.commonPool().invoke(new Recompute(this));
+        propagateCostChange(result - previous);
+        return result;
+    }
+
+    void adjustAnnualCost(long delta)
+    {
+        _annualCost += delta;
+    }
+
+    private static class Recompute extends RecursiveTask<Long>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Department _department;
+
+        Recompute(Department department)
+        {
+            _department = department;
+        }
+
+        @Override
+        protected Long compute()
+        {
+            final List<Recompute> forked = new ArrayList<Recompute>();
+            long result = 0;
+            for (Party each : _department._staff)
+            {
+                if (!(each instanceof Department))
+                {
+                    result += each.getAnnualCost();
+                }
+                else if (((Department) each)._staff.size() < SEQUENTIAL_THRESHOLD)
+                {
+                    result += new Recompute((Department) each).compute();
+                }
+                else
+                {
+                    final Recompute task = new Recompute((Department) each);
+                    task.fork();
+                    forked.add(task);
+                }
+            }
+            for (Recompute each : forked)
+            {
+                result += each.join();
+            }
+            _department._annualCost = result;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+// Employee.java - Employee as a party with its own annual cost
+
+package com.refactoring.stategies.F_Dealing_with_Generalization;
+
+/**
+ * The employee of {@link F1006_Extract_Superclass}.
+ */
+public class Employee extends Party
+{
+    private final String _id;
+    private int _annualCost;
+
+    public Employee(String name, String id, int annualCost)
+    {
+        super(name);
+        _id = id;
+        _annualCost = annualCost;
+    }
+
+    public String getId()
+    {
+        return _id;
+    }
+
+    @Override
+    public long getAnnualCost()
+    {
+        return _annualCost;
+    }
+
+    /**
+     * Changes the cost and updates the totals of the departments above, at a
+     * cost proportional to the depth of the employee in the tree.
+     */
+    public void setAnnualCost(int arg)
+    {
+        final long delta = (long) arg - _annualCost;
+        _annualCost = arg;
+        propagateCostChange(delta);
+    }
+}
@@ -0,0 +1,122 @@
+// IntStack.java - Stack of primitive ints
+
+package com.refactoring.stategies.F_Dealing_with_Generalization;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A stack of int values with the operations of {@link MyStack}, held in a
+ * growable int[] so pushing does not box. Not safe for concurrent use.
+ *
+ * Like MyStack it can be given a maximum size, through {@link #bounded(int)};
+ * the array then becomes a ring, and pushing onto a full stack overwrites the
+ * element at the bottom.
+ */
+public class IntStack
+{
+    private int[] _elements;
+    private final int _maxSize;
+    // index of the bottom element; only moves once a bounded stack is full
+    private int _bottom;
+    private int _size;
+
+    public IntStack()
+    {
+        this(16);
+    }
+
+    public IntStack(int initialCapacity)
+    {
+        this(initialCapacity, Integer.MAX_VALUE);
+    }
+
+    private IntStack(int initialCapacity, int maxSize)
+    {
+        _elements = new int[Math.max(initialCapacity, 1)];
+        _maxSize = maxSize;
+    }
+
+    /**
+     * Returns a stack that holds at most maxSize elements, dropping the
+     * bottom one when a push would go past that.
+     */
+    public static IntStack bounded(int maxSize)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("Stack size must be positive: " + maxSize);
+        }
+        return new IntStack(Math.min(maxSize, 16), maxSize);
+    }
+
+    public void push(int element)
+    {
+        if (_size == _maxSize)
+        {
+            _elements[_bottom] = element;
+            _bottom = slot(1);
+            return;
+        }
+        if (_size == _elements.length)
+        {
+            grow();
+        }
+        _elements[slot(_size++)] = element;
+    }
+
+    /**
+     * @throws NoSuchElementException if the stack is empty
+     */
+    public int pop()
+    {
+        if (_size == 0)
+        {
+            throw new NoSuchElementException();
+        }
+        return _elements[slot(--_size)];
+    }
+
+    /**
+     * @throws NoSuchElementException if the stack is empty
+     */
+    public int peek()
+    {
+        if (_size == 0)
+        {
+            throw new NoSuchElementException();
+        }
+        return _elements[slot(_size - 1)];
+    }
+
+    public int size()
+    {
+        return _size;
+    }
+
+    public boolean isEmpty()
+    {
+        return _size == 0;
+    }
+
+    public void clear()
+    {
+        _bottom = 0;
+        _size = 0;
+    }
+
+    private int slot(int index)
+    {
+        final int result = _bottom + index;
+        return result < _elements.length ? result : result - _elements.length;
+    }
+
+    private void grow()
+    {
+        final int[] grown = new int[(int) Math.min((long) _elements.length * 2, _maxSize)];
+        final int toEnd = Math.min(_size, _elements.length - _bottom);
+        System.arraycopy(_elements, _bottom, grown, 0, toEnd);
+        System.arraycopy(_elements, 0, grown, toEnd, _size - toEnd);
+        _elements = grown;
+        _bottom = 0;
+    }
+}
@@ -0,0 +1,84 @@
+// MyStack.java - Stack delegating to an array deque
+
+package com.refactoring.stategies.F_Dealing_with_Generalization;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+/**
+ * The stack of {@link F1009_Replace_Inheritance_with_Delegation}, delegating
+ * to an ArrayDeque rather than a Vector. The deque is a growable ring buffer,
+ * so push and pop are amortised constant time instead of shifting every
+ * element, and neither takes a lock; a stack shared between threads needs
+ * outside synchronization. Like the deque, the stack does not take null
+ * elements.
+ *
+ * A stack can be given a maximum size, as an undo buffer usually is; pushing
+ * onto a full stack then drops the element at the bottom.
+ */
+public class MyStack<E>
+{
+    private final ArrayDeque<E> _deque;
+    private final int _maxSize;
+
+    public MyStack()
+    {
+        _deque = new ArrayDeque<E>();
+        _maxSize = Integer.MAX_VALUE;
+    }
+
+    public MyStack(int maxSize)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("Stack size must be positive: " + maxSize);
+        }
+        _deque = new ArrayDeque<E>(Math.min(maxSize, 1 << 16));
+        _maxSize = maxSize;
+    }
+
+    public void push(E element)
+    {
+        if (_deque.size() == _maxSize)
+        {
+            _deque.pollLast();
+        }
+        _deque.push(element);
+    }
+
+    /**
+     * @throws NoSuchElementException if the stack is empty
+     */
+    public E pop()
+    {
+        return _deque.pop();
+    }
+
+    /**
+     * @throws NoSuchElementException if the stack is empty
+     */
+    public E peek()
+    {
+        final E result = _deque.peekFirst();
+        if (result == null)
+        {
+            throw new NoSuchElementException();
+        }
+        return result;
+    }
+
+    public int size()
+    {
+        return _deque.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return _deque.isEmpty();
+    }
+
+    public void clear()
+    {
+        _deque.clear();
+    }
+}
@@ -0,0 +1,54 @@
+// Party.java - Common superclass of employees and departments
+
+package com.refactoring.stategies.F_Dealing_with_Generalization;
+
+/**
+ * The superclass extracted in {@link F1006_Extract_Superclass}, taken on to
+ * the composite the example ends with: a department's staff are parties, so
+ * departments can contain departments.
+ *
+ * Each party knows the department it belongs to, so a change in an employee's
+ * cost can be passed up to every department above it; see {@link Department}.
+ */
+public abstract class Party
+{
+    private final String _name;
+    private Department _parent;
+
+    protected Party(String name)
+    {
+        _name = name;
+    }
+
+    public String getName()
+    {
+        return _name;
+    }
+
+    public Department getParent()
+    {
+        return _parent;
+    }
+
+    void setParent(Department arg)
+    {
+        if (arg != null && _parent != null)
+        {
+            throw new IllegalStateException(_name + " already belongs to " + _parent.getName());
+        }
+        _parent = arg;
+    }
+
+    abstract public long getAnnualCost();
+
+    /**
+     * Adds the change to the cost of every department above this party.
+     */
+    protected void propagateCostChange(long delta)
+    {
+        for (Department each = _parent; each != null; each = each.getParent())
+        {
+            each.adjustAnnualCost(delta);
+        }
+    }
+}